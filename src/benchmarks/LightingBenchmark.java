@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.SceneLoader;
+import renderer.Vector3D;
+
+/**
+ * Times lighting every polygon of a model (data/monkey.txt by default) with
+ * 1, 2, 4, ... directional lights. "batched" is Pipeline.shadeAll going over
+ * the scene once with all the lights; "per light" calls getShading once for
+ * every polygon and light, which is what a renderer with one light per pass
+ * would do.
+ *
+ * Usage: java benchmarks.LightingBenchmark [frames] [model file] [max lights]
+ */
+public class LightingBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		File file = new File(args.length > 1 ? args[1] : "data/monkey.txt");
+		int maxLights = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		PackedScene scene = SceneLoader.load(file);
+		int count = scene.getPolygonCount();
+		int[] shades = new int[count];
+		Color ambient = new Color(30, 30, 30);
+
+		System.out.printf("%s: %d polygons, %d frames%n", file.getName(), count, frames);
+		System.out.printf("%8s %14s %14s %14s%n", "lights", "batched us", "us per light", "per light us");
+		Random random = new Random(261);
+		for (int lights = 1; lights <= maxLights; lights *= 2) {
+			float[] directions = new float[lights * 3];
+			int[] colours = new int[lights];
+			Vector3D[] vectors = new Vector3D[lights];
+			Color[] lightColours = new Color[lights];
+			for (int l = 0; l < lights; l++) {
+				for (int i = 0; i < 3; i++)
+					directions[l * 3 + i] = random.nextFloat() * 2 - 1;
+				colours[l] = random.nextInt(0x1000000);
+				vectors[l] = new Vector3D(directions[l * 3], directions[l * 3 + 1], directions[l * 3 + 2]);
+				lightColours[l] = new Color(colours[l]);
+			}
+			PackedScene lit = scene.withLights(directions, colours);
+
+			// the first pass warms up the JIT and is not timed.
+			double batched = 0, perLight = 0;
+			long checksum = 0;
+			for (int pass = 0; pass < 2; pass++) {
+				long start = System.nanoTime();
+				for (int f = 0; f < frames; f++) {
+					Pipeline.shadeAll(lit, 0, count, ambient.getRGB(), shades);
+					checksum += shades[f % count];
+				}
+				batched = (System.nanoTime() - start) / 1e3 / frames;
+				start = System.nanoTime();
+				for (int f = 0; f < frames / lights + 1; f++)
+					for (int p = 0; p < count; p++)
+						for (int l = 0; l < lights; l++)
+							checksum += Pipeline.getShading(lit, p, vectors[l], lightColours[l], ambient).getRGB();
+				perLight = (System.nanoTime() - start) / 1e3 / (frames / lights + 1);
+			}
+			System.out.printf("%8d %14.1f %14.2f %14.1f%s%n", lights, batched, batched / lights, perLight,
+					checksum == 0 ? " " : "");
+		}
+	}
+}
+
+// code for comp261 assignments
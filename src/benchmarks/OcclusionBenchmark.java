@@ -0,0 +1,111 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import renderer.FrameBuffer;
+import renderer.GUI;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.RasterEngine;
+import renderer.SceneLoader;
+import renderer.Transform;
+
+/**
+ * Times drawing each model (all of data/ by default) with the edge list, on
+ * one thread, with occlusion culling off and on, from a spread of view
+ * angles. Each model is drawn as fitted to the canvas and zoomed in 3x about
+ * the centre, both on its own and as LAYERS copies one behind the other,
+ * drawn nearest first, which is the case culling is meant for. The polygons
+ * of each copy are drawn in file order. Only the drawing is timed, taking the
+ * best of several passes, and the triangles culled and the pixels of the
+ * spans culled are averaged per frame.
+ *
+ * Usage: java benchmarks.OcclusionBenchmark [frames] [model files...]
+ */
+public class OcclusionBenchmark {
+	private static final float[] ZOOMS = { 1, 3 };
+	private static final int LAYERS = 4;
+	private static final int PASSES = 5;
+
+	public static void main(String[] args) throws IOException {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		File[] files = new File[args.length > 1 ? args.length - 1 : 0];
+		for (int i = 1; i < args.length; i++)
+			files[i - 1] = new File(args[i]);
+		if (files.length == 0)
+			files = new File("data").listFiles((dir, name) -> name.endsWith(".txt"));
+		if (files == null) {
+			System.out.println("no models found");
+			return;
+		}
+		Arrays.sort(files);
+
+		System.out.printf("%-14s %5s %7s %10s %10s %10s %10s %12s%n", "model", "zoom", "copies", "polygons", "off ms",
+				"on ms", "culled", "span px");
+		FrameBuffer frame = new FrameBuffer(GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+		float cx = GUI.CANVAS_WIDTH / 2f, cy = GUI.CANVAS_HEIGHT / 2f;
+		for (File file : files) {
+			PackedScene scene = SceneLoader.load(file);
+			for (float zoom : ZOOMS) {
+				Transform zoomIn = Transform.newTranslation(cx, cy, 0).compose(Transform.newScale(zoom, zoom, 1))
+						.compose(Transform.newTranslation(-cx, -cy, 0));
+				int views = 16;
+				PackedScene[][] screen = new PackedScene[views][LAYERS];
+				for (int v = 0; v < views; v++) {
+					Transform rotation = Transform.newXRotation(v * 0.4f).compose(Transform.newYRotation(v * 0.9f));
+					PackedScene view = Pipeline.viewScene(scene, rotation).transform(zoomIn);
+					// each copy is pushed back past the whole of the one before.
+					float depth = GUI.CANVAS_WIDTH * zoom * 2;
+					for (int layer = 0; layer < LAYERS; layer++)
+						screen[v][layer] = view.transform(Transform.newTranslation(0, 0, layer * depth));
+				}
+				for (int copies : new int[] { 1, LAYERS })
+					time(frame, file.getName(), zoom, screen, copies, frames, scene.getPolygonCount());
+			}
+		}
+	}
+
+	private static void time(FrameBuffer frame, String name, float zoom, PackedScene[][] screen, int copies,
+			int frames, int polygons) {
+		// the first pass warms up the JIT and is not timed, and the best of
+		// the rest is kept, as the timings are noisy.
+		double off = Double.MAX_VALUE, on = Double.MAX_VALUE;
+		long triangles = 0, spanPixels = 0;
+		for (int pass = 0; pass <= PASSES; pass++) {
+			long start = System.nanoTime();
+			for (int f = 0; f < frames; f++)
+				drawFrame(frame, screen[f % screen.length], copies, false);
+			if (pass > 0)
+				off = Math.min(off, (System.nanoTime() - start) / 1e6 / frames);
+			triangles = 0;
+			spanPixels = 0;
+			start = System.nanoTime();
+			for (int f = 0; f < frames; f++) {
+				drawFrame(frame, screen[f % screen.length], copies, true);
+				triangles += frame.getTrianglesCulled();
+				spanPixels += frame.getSpanPixelsCulled();
+			}
+			if (pass > 0)
+				on = Math.min(on, (System.nanoTime() - start) / 1e6 / frames);
+		}
+		System.out.printf("%-14s %5.0f %7d %10d %10.3f %10.3f %10.1f %12.1f%n", name, zoom, copies,
+				polygons * copies, off, on, triangles / (double) frames, spanPixels / (double) frames);
+	}
+
+	private static void drawFrame(FrameBuffer frame, PackedScene[] layers, int copies, boolean cull) {
+		frame.clear(0x808080);
+		frame.setOcclusionCulling(cull);
+		for (int layer = 0; layer < copies; layer++) {
+			float[] positions = layers[layer].getPositions();
+			int[] indices = layers[layer].getIndices();
+			for (int p = 0; p < layers[layer].getPolygonCount(); p++)
+				if (!Pipeline.isHidden(positions, indices, p))
+					RasterEngine.EDGE_LIST.draw(frame, positions, indices, p, 0xFFFFFF, 0, 0, frame.getWidth(),
+							frame.getHeight());
+		}
+	}
+}
+
+// code for comp261 assignments
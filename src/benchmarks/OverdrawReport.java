@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import renderer.DepthSorter;
+import renderer.FrameBuffer;
+import renderer.GUI;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.RasterEngine;
+import renderer.SceneLoader;
+import renderer.Transform;
+
+/**
+ * Reports the overdraw of each model (all of data/ by default): the number of
+ * pixel writes that pass the depth test divided by the number of pixels
+ * covered, averaged over a turn of views, drawing in file order and then
+ * front to back with a DepthSorter. It also times the sort.
+ *
+ * Usage: java benchmarks.OverdrawReport [model files...]
+ */
+public class OverdrawReport {
+
+	public static void main(String[] args) throws IOException {
+		File[] files = new File[args.length];
+		for (int i = 0; i < args.length; i++)
+			files[i] = new File(args[i]);
+		if (files.length == 0)
+			files = new File("data").listFiles((dir, name) -> name.endsWith(".txt"));
+		if (files == null) {
+			System.out.println("no models found");
+			return;
+		}
+		Arrays.sort(files);
+
+		System.out.printf("%-14s %10s %12s %12s %12s %10s%n", "model", "polygons", "file order", "front-back",
+				"sort us", "radix");
+		FrameBuffer frame = new FrameBuffer(GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+		for (File file : files) {
+			PackedScene scene = SceneLoader.load(file);
+			DepthSorter sorter = new DepthSorter();
+			int views = 90;
+			double fileOrder = 0, sorted = 0;
+			long sortNanos = 0;
+			int radixSorts = 0;
+			for (int v = 0; v < views; v++) {
+				// small steps, as when a key is held down.
+				Transform rotation = Transform.newYRotation(v * 0.035f).compose(Transform.newXRotation(v * 0.02f));
+				PackedScene screen = Pipeline.viewScene(scene, rotation);
+				fileOrder += overdraw(frame, screen, null, screen.getPolygonCount());
+				long start = System.nanoTime();
+				int count = sorter.sort(screen);
+				sortNanos += System.nanoTime() - start;
+				radixSorts += sorter.usedRadixSort() ? 1 : 0;
+				sorted += overdraw(frame, screen, sorter.getOrder(), count);
+			}
+			System.out.printf("%-14s %10d %12.3f %12.3f %12.1f %7d/%d%n", file.getName(), scene.getPolygonCount(),
+					fileOrder / views, sorted / views, sortNanos / 1e3 / views, radixSorts, views);
+		}
+	}
+
+	/**
+	 * Draws the polygons in the given order (or file order if null), each in
+	 * its own colour, and returns writes per covered pixel. The writes of a
+	 * polygon are the pixels in its box left holding its colour.
+	 */
+	private static double overdraw(FrameBuffer frame, PackedScene scene, int[] order, int count) {
+		frame.clear(0);
+		float[] positions = scene.getPositions();
+		int[] indices = scene.getIndices();
+		int[] pixels = frame.getPixels();
+		int width = frame.getWidth(), height = frame.getHeight();
+		long writes = 0;
+		for (int k = 0; k < count; k++) {
+			int p = order == null ? k : order[k];
+			if (Pipeline.isHidden(positions, indices, p))
+				continue;
+			int colour = p + 1;
+			RasterEngine.EDGE_LIST.draw(frame, positions, indices, p, colour, 0, 0, width, height);
+			float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+			for (int i = 0; i < 3; i++) {
+				int v = indices[p * 3 + i] * 3;
+				minX = Math.min(minX, positions[v]);
+				maxX = Math.max(maxX, positions[v]);
+				minY = Math.min(minY, positions[v + 1]);
+				maxY = Math.max(maxY, positions[v + 1]);
+			}
+			for (int y = Math.max(0, (int) minY - 1); y < Math.min(height, (int) maxY + 2); y++)
+				for (int x = Math.max(0, (int) minX - 1); x < Math.min(width, (int) maxX + 2); x++)
+					if (pixels[y * width + x] == colour)
+						writes++;
+		}
+		long covered = 0;
+		for (int pixel : pixels)
+			if (pixel != 0)
+				covered++;
+		return covered == 0 ? 1 : writes / (double) covered;
+	}
+}
+
+// code for COMP261 assignments
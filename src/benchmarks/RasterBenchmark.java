@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import renderer.FrameBuffer;
+import renderer.GUI;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.RasterEngine;
+import renderer.SceneLoader;
+import renderer.Transform;
+import renderer.Vector3D;
+
+/**
+ * Times each RasterEngine drawing the given models (all of data/ by default)
+ * from a spread of view angles, on one thread. Only the drawing is timed;
+ * the views are transformed and shaded beforehand.
+ *
+ * Usage: java benchmarks.RasterBenchmark [frames] [model files...]
+ */
+public class RasterBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		File[] files = new File[args.length > 1 ? args.length - 1 : 0];
+		for (int i = 1; i < args.length; i++)
+			files[i - 1] = new File(args[i]);
+		if (files.length == 0)
+			files = new File("data").listFiles((dir, name) -> name.endsWith(".txt"));
+		if (files == null) {
+			System.out.println("no models found");
+			return;
+		}
+		Arrays.sort(files);
+
+		System.out.printf("%-14s %10s", "model", "polygons");
+		for (RasterEngine engine : RasterEngine.values())
+			System.out.printf(" %14s", engine + " ms");
+		System.out.println();
+
+		FrameBuffer frame = new FrameBuffer(GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+		for (File file : files) {
+			PackedScene scene = SceneLoader.load(file);
+			int views = 16;
+			PackedScene[] screen = new PackedScene[views];
+			int[][] colours = new int[views][];
+			for (int v = 0; v < views; v++) {
+				Transform rotation = Transform.newXRotation(v * 0.4f).compose(Transform.newYRotation(v * 0.9f));
+				screen[v] = Pipeline.viewScene(scene, rotation);
+				Vector3D light = screen[v].getLightVector();
+				colours[v] = new int[scene.getPolygonCount()];
+				for (int p = 0; p < scene.getPolygonCount(); p++)
+					colours[v][p] = Pipeline.getShading(screen[v], p, light, Color.WHITE, Color.DARK_GRAY).getRGB();
+			}
+
+			System.out.printf("%-14s %10d", file.getName(), scene.getPolygonCount());
+			for (RasterEngine engine : RasterEngine.values()) {
+				// the first pass warms up the JIT and is not timed.
+				double ms = 0;
+				for (int pass = 0; pass < 2; pass++) {
+					long start = System.nanoTime();
+					for (int f = 0; f < frames; f++)
+						drawFrame(frame, engine, screen[f % views], colours[f % views]);
+					ms = (System.nanoTime() - start) / 1e6 / frames;
+				}
+				System.out.printf(" %14.3f", ms);
+			}
+			System.out.println();
+		}
+	}
+
+	private static void drawFrame(FrameBuffer frame, RasterEngine engine, PackedScene scene, int[] colours) {
+		frame.clear(0x808080);
+		float[] positions = scene.getPositions();
+		int[] indices = scene.getIndices();
+		for (int p = 0; p < scene.getPolygonCount(); p++)
+			if (!Pipeline.isHidden(positions, indices, p))
+				engine.draw(frame, positions, indices, p, colours[p], 0, 0, frame.getWidth(), frame.getHeight());
+	}
+}
+
+// code for comp261 assignments
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.GUI;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.RasterEngine;
+import renderer.SceneLoader;
+import renderer.Transform;
+
+/**
+ * Times whole frames of flat and Gouraud shading, on one thread, from a
+ * spread of view angles (data/monkey.txt and data/ball.txt by default). Each
+ * frame is transformed, lit and drawn with the edge list: "flat" shades each
+ * polygon once with shadeAll, and "gouraud" lights each vertex once with
+ * lightVertices and blends the corner colours across the polygons.
+ *
+ * Usage: java benchmarks.ShadingModeBenchmark [frames] [model files...]
+ */
+public class ShadingModeBenchmark {
+	private static final int AMBIENT = 0x303030;
+
+	public static void main(String[] args) throws IOException {
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		String[] names = args.length > 1 ? new String[args.length - 1] : new String[] { "data/monkey.txt",
+				"data/ball.txt" };
+		for (int i = 1; i < args.length; i++)
+			names[i - 1] = args[i];
+
+		System.out.printf("%-14s %10s %10s %12s %12s %10s%n", "model", "polygons", "vertices", "flat ms",
+				"gouraud ms", "overhead");
+		FrameBuffer frame = new FrameBuffer(GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+		for (String name : names) {
+			PackedScene scene = SceneLoader.load(new File(name));
+			scene.getNormals();
+			scene.getVertexNormals();
+			int views = 16;
+			Transform[] rotations = new Transform[views];
+			for (int v = 0; v < views; v++)
+				rotations[v] = Transform.newXRotation(v * 0.4f).compose(Transform.newYRotation(v * 0.9f));
+			int[] shades = new int[scene.getPolygonCount()];
+			float[] light = new float[scene.getVertexCount() * 3];
+			float[] corners = new float[PackedScene.FLOATS_PER_POLYGON];
+
+			// the first pass warms up the JIT and is not timed.
+			double flat = 0, gouraud = 0;
+			for (int pass = 0; pass < 2; pass++) {
+				long start = System.nanoTime();
+				for (int f = 0; f < frames; f++)
+					drawFlat(frame, Pipeline.viewScene(scene, rotations[f % views]), shades);
+				flat = (System.nanoTime() - start) / 1e6 / frames;
+				start = System.nanoTime();
+				for (int f = 0; f < frames; f++)
+					drawGouraud(frame, Pipeline.viewScene(scene, rotations[f % views]), light, corners);
+				gouraud = (System.nanoTime() - start) / 1e6 / frames;
+			}
+			System.out.printf("%-14s %10d %10d %12.3f %12.3f %9.0f%%%n", new File(name).getName(),
+					scene.getPolygonCount(), scene.getVertexCount(), flat, gouraud, (gouraud / flat - 1) * 100);
+		}
+	}
+
+	private static void drawFlat(FrameBuffer frame, PackedScene scene, int[] shades) {
+		frame.clear(0x808080);
+		Pipeline.shadeAll(scene, 0, scene.getPolygonCount(), AMBIENT, shades);
+		float[] positions = scene.getPositions();
+		int[] indices = scene.getIndices();
+		for (int p = 0; p < scene.getPolygonCount(); p++)
+			if (!Pipeline.isHidden(scene, p))
+				RasterEngine.EDGE_LIST.draw(frame, positions, indices, p, shades[p], 0, 0, frame.getWidth(),
+						frame.getHeight());
+	}
+
+	private static void drawGouraud(FrameBuffer frame, PackedScene scene, float[] light, float[] corners) {
+		frame.clear(0x808080);
+		Pipeline.lightVertices(scene, AMBIENT, light);
+		float[] positions = scene.getPositions();
+		int[] indices = scene.getIndices();
+		for (int p = 0; p < scene.getPolygonCount(); p++) {
+			if (!Pipeline.isHidden(scene, p)) {
+				Pipeline.cornerColours(scene, light, p, corners);
+				EdgeList edges = Pipeline.computeEdgeList(positions, indices, p, corners, EdgeList.scratch(), 0, 0,
+						frame.getWidth(), frame.getHeight());
+				Pipeline.computeShadedZBuffer(frame, edges, 0, 0, frame.getWidth(), frame.getHeight());
+			}
+		}
+	}
+}
+
+// code for comp261 assignments
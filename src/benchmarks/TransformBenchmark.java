@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import renderer.Transform;
+
+/**
+ * Times Transform.transformAll on a large synthetic vertex array with 1, 2, 4,
+ * ... threads up to the number of processors.
+ *
+ * Usage: java benchmarks.TransformBenchmark [vertices] [repeats]
+ */
+public class TransformBenchmark {
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		Random random = new Random(261);
+		float[] points = new float[count * 3];
+		for (int i = 0; i < points.length; i++)
+			points[i] = (random.nextFloat() - 0.5f) * 1000;
+		float[] result = new float[points.length];
+		Transform transform = Transform.newTranslation(300, 300, 0).compose(Transform.newScale(2, 2, 2))
+				.compose(Transform.newXRotation(0.3f)).compose(Transform.newYRotation(-1.1f));
+
+		System.out.printf("%d vertices, %d repeats, %d processors%n", count, repeats, cores);
+		System.out.printf("%8s %12s %10s%n", "threads", "ms/pass", "speedup");
+		double single = 0;
+		for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			// warm up, so the JIT has compiled the loop before timing.
+			for (int i = 0; i < 3; i++)
+				transform.transformAll(points, result, count, pool);
+			long start = System.nanoTime();
+			for (int i = 0; i < repeats; i++)
+				transform.transformAll(points, result, count, pool);
+			double ms = (System.nanoTime() - start) / 1e6 / repeats;
+			pool.shutdown();
+			if (threads == 1)
+				single = ms;
+			System.out.printf("%8d %12.2f %9.2fx%n", threads, ms, single / ms);
+		}
+	}
+}
+
+// code for comp261 assignments
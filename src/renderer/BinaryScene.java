@@ -0,0 +1,195 @@
+package renderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compiled binary form of a scene file, so a model can be opened without
+ * parsing any text. All values are little-endian:
+ *
+ * <pre>
+ * offset  size  contents
+ *      0     4  magic "RSCN"
+ *      4     4  format version (3)
+ *      8     4  polygon count n
+ *     12     4  light count l
+ *     16     4  unique vertex count v
+ *     20  16*l  lights, x, y, z floats and a 0x00RRGGBB colour int per light
+ *      .  12*v  vertex positions, x, y, z floats per vertex
+ *      .  12*n  indices, 3 vertex numbers per polygon
+ *      .   4*n  reflectance, one 0x00RRGGBB int per polygon
+ * </pre>
+ *
+ * Version 2 files have at most one (white) light, flagged by bit 0 of the int
+ * at 12 and stored at 16, and the vertex count at 28. Version 1 files are laid
+ * out the same way up to the light but have no vertex count, and store 9
+ * floats per polygon instead of positions and indices. Both are still read,
+ * and version 1 scenes are indexed on load.
+ * <p>
+ * Reading maps the file and bulk-copies the arrays out of it. Running this
+ * class converts a scene file (text or binary) into the binary format:
+ * <code>java renderer.BinaryScene model.txt model.scn</code>
+ */
+public class BinaryScene {
+	/** "RSCN" as a little-endian int. */
+	public static final int MAGIC = 'R' | ('S' << 8) | ('C' << 16) | ('N' << 24);
+	public static final int VERSION = 3;
+	private static final int V1_HEADER_SIZE = 28;
+	private static final int V2_HEADER_SIZE = 32;
+	static final int HEADER_SIZE = 20;
+	private static final int LIGHT_SIZE = 16;
+	private static final int FLAG_HAS_LIGHT = 1;
+
+	/** Returns true if the buffer starts with the binary scene magic number. */
+	public static boolean isBinary(ByteBuffer buf) {
+		return buf.limit() >= 4 && buf.order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC;
+	}
+
+	/** Reads a binary scene held in the given buffer. */
+	static PackedScene read(ByteBuffer buf) throws IOException {
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+			throw new IOException("Not a binary scene file");
+		int version = buf.getInt(4);
+		if (version < 1 || version > VERSION)
+			throw new IOException("Unsupported binary scene version " + version);
+		if (version < 3)
+			return readOld(buf, version);
+
+		int count = buf.getInt(8);
+		int lightCount = buf.getInt(12);
+		int vertexCount = buf.getInt(16);
+		if (count < 0 || lightCount < 0 || vertexCount < 0
+				|| HEADER_SIZE + (long) LIGHT_SIZE * lightCount + 12L * vertexCount + 16L * count > buf.limit())
+			throw new IOException("Truncated binary scene file");
+		float[] lights = lightCount == 0 ? null : new float[lightCount * 3];
+		int[] lightColours = lightCount == 0 ? null : new int[lightCount];
+		for (int l = 0; l < lightCount; l++) {
+			int offset = HEADER_SIZE + l * LIGHT_SIZE;
+			lights[l * 3] = buf.getFloat(offset);
+			lights[l * 3 + 1] = buf.getFloat(offset + 4);
+			lights[l * 3 + 2] = buf.getFloat(offset + 8);
+			lightColours[l] = buf.getInt(offset + 12) & 0xFFFFFF;
+		}
+		int start = HEADER_SIZE + lightCount * LIGHT_SIZE;
+		float[] positions = new float[vertexCount * 3];
+		int[] indices = new int[count * 3];
+		int[] reflectance = new int[count];
+		readFloats(buf, start, positions);
+		readInts(buf, start + positions.length * 4, indices);
+		readInts(buf, start + positions.length * 4 + indices.length * 4, reflectance);
+		for (int index : indices)
+			if (index < 0 || index >= vertexCount)
+				throw new IOException("Vertex index out of range: " + index);
+		return new PackedScene(positions, vertexCount, indices, reflectance, count, null).withLights(lights,
+				lightColours);
+	}
+
+	/** Reads a version 1 or 2 scene, which has at most one light. */
+	private static PackedScene readOld(ByteBuffer buf, int version) throws IOException {
+		if (buf.limit() < V1_HEADER_SIZE)
+			throw new IOException("Truncated binary scene file");
+		int count = buf.getInt(8);
+		int flags = buf.getInt(12);
+		float[] light = null;
+		if ((flags & FLAG_HAS_LIGHT) != 0)
+			light = new float[] { buf.getFloat(16), buf.getFloat(20), buf.getFloat(24) };
+		int[] reflectance = new int[count < 0 ? 0 : count];
+
+		if (version == 1) {
+			if (count < 0 || V1_HEADER_SIZE + 40L * count > buf.limit())
+				throw new IOException("Truncated binary scene file");
+			float[] vertices = new float[count * PackedScene.FLOATS_PER_POLYGON];
+			readFloats(buf, V1_HEADER_SIZE, vertices);
+			readInts(buf, V1_HEADER_SIZE + vertices.length * 4, reflectance);
+			return PackedScene.fromTriangles(vertices, reflectance, count, light);
+		}
+
+		int vertexCount = buf.limit() < V2_HEADER_SIZE ? -1 : buf.getInt(28);
+		if (count < 0 || vertexCount < 0 || V2_HEADER_SIZE + 12L * vertexCount + 16L * count > buf.limit())
+			throw new IOException("Truncated binary scene file");
+		float[] positions = new float[vertexCount * 3];
+		int[] indices = new int[count * 3];
+		readFloats(buf, V2_HEADER_SIZE, positions);
+		readInts(buf, V2_HEADER_SIZE + positions.length * 4, indices);
+		readInts(buf, V2_HEADER_SIZE + positions.length * 4 + indices.length * 4, reflectance);
+		for (int index : indices)
+			if (index < 0 || index >= vertexCount)
+				throw new IOException("Vertex index out of range: " + index);
+		return new PackedScene(positions, vertexCount, indices, reflectance, count, light);
+	}
+
+	private static void readFloats(ByteBuffer buf, int offset, float[] dst) {
+		buf.position(offset);
+		buf.asFloatBuffer().get(dst);
+		buf.position(0);
+	}
+
+	private static void readInts(ByteBuffer buf, int offset, int[] dst) {
+		buf.position(offset);
+		buf.asIntBuffer().get(dst);
+		buf.position(0);
+	}
+
+	/** Returns the number of bytes the scene takes up in the binary format. */
+	static long size(PackedScene scene) {
+		return HEADER_SIZE + (long) LIGHT_SIZE * scene.getLightCount() + 12L * scene.getVertexCount()
+				+ 16L * scene.getPolygonCount();
+	}
+
+	/** Writes a scene to the given file in the binary format. */
+	public static void write(PackedScene scene, File file) throws IOException {
+		long size = size(scene);
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Scene too large for a binary scene file");
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			write(scene, out);
+			out.force();
+		}
+	}
+
+	/**
+	 * Writes a scene in the binary format into a buffer, starting at index 0,
+	 * which must have room for size(scene) bytes.
+	 */
+	static void write(PackedScene scene, ByteBuffer out) {
+		int count = scene.getPolygonCount();
+		int vertexCount = scene.getVertexCount();
+		int lightCount = scene.getLightCount();
+		out.order(ByteOrder.LITTLE_ENDIAN);
+		out.position(0);
+		out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(lightCount).putInt(vertexCount);
+		float[] lights = scene.getLights();
+		for (int l = 0; l < lightCount; l++) {
+			out.putFloat(lights[l * 3]).putFloat(lights[l * 3 + 1]).putFloat(lights[l * 3 + 2]);
+			out.putInt(scene.getLightColours()[l]);
+		}
+		int start = HEADER_SIZE + lightCount * LIGHT_SIZE;
+		out.asFloatBuffer().put(scene.getPositions(), 0, vertexCount * 3);
+		out.position(start + vertexCount * 12);
+		out.asIntBuffer().put(scene.getIndices(), 0, count * 3);
+		out.position(start + vertexCount * 12 + count * 12);
+		out.asIntBuffer().put(scene.getReflectance(), 0, count);
+		out.position(0);
+	}
+
+	/** Converts the scene file args[0] into a binary scene file args[1]. */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("usage: java renderer.BinaryScene <scene file> <output file>");
+			return;
+		}
+		PackedScene scene = SceneLoader.load(new File(args[0]));
+		write(scene, new File(args[1]));
+		System.out.println("wrote " + scene.getPolygonCount() + " polygons to " + args[1]);
+	}
+}
+
+// code for comp261 assignments
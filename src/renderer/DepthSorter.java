@@ -0,0 +1,153 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * Puts the visible polygons of a screen space scene in front to back order of
+ * their nearest vertex, so that near surfaces are drawn first and the depth
+ * test rejects more of what is behind them.
+ * <p>
+ * The order of every polygon is kept from one frame to the next. A small
+ * rotation hardly changes it, so each frame starts with an insertion sort of
+ * last frame's order, which costs little when only a few polygons have moved.
+ * If it turns out to need too many moves, the rest is left to a radix sort on
+ * the depths' float bits. Both sorts are stable, so ties keep last frame's
+ * order, and nothing is boxed or allocated once the arrays are big enough.
+ */
+public class DepthSorter {
+    /** insertion sort gives up after this many moves per polygon. */
+    private static final int INSERTION_MOVES = 4;
+
+    private int[] order = new int[0];
+    private int[] keys = new int[0];
+    private int[] sortedKeys = new int[0];
+    private int[] keyScratch = new int[0];
+    private int[] orderScratch = new int[0];
+    private int[] visible = new int[0];
+    private final int[] counts = new int[256];
+    private boolean radixUsed;
+
+    /**
+     * Sorts the scene's polygons and returns the number of visible ones, which
+     * are then the first entries of getOrder(), nearest first.
+     */
+    public int sort(PackedScene scene) {
+        int n = scene.getPolygonCount();
+        float[] positions = scene.getPositions();
+        int[] indices = scene.getIndices();
+        if (order.length != n) {
+            // a different scene; start again from file order.
+            order = new int[n];
+            for (int p = 0; p < n; p++) {
+                order[p] = p;
+            }
+            keys = new int[n];
+            sortedKeys = new int[n];
+            keyScratch = new int[n];
+            orderScratch = new int[n];
+            visible = new int[n];
+        }
+        for (int p = 0; p < n; p++) {
+            float nearest = Math.min(positions[indices[p * 3] * 3 + 2],
+                    Math.min(positions[indices[p * 3 + 1] * 3 + 2], positions[indices[p * 3 + 2] * 3 + 2]));
+            keys[p] = sortableBits(nearest);
+        }
+        for (int i = 0; i < n; i++) {
+            sortedKeys[i] = keys[order[i]];
+        }
+        radixUsed = !insertionSort(n, n * INSERTION_MOVES);
+        if (radixUsed) {
+            radixSort(n);
+        }
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Pipeline.isHidden(scene, order[i])) {
+                visible[count++] = order[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The visible polygons from the last sort(), nearest first. Only the
+     * number of entries sort() returned are meaningful.
+     */
+    public int[] getOrder() {
+        return visible;
+    }
+
+    /** Whether the last sort() had to fall back on the radix sort. */
+    public boolean usedRadixSort() {
+        return radixUsed;
+    }
+
+    /**
+     * Maps a float to an int whose unsigned order is the float's order:
+     * positive floats get their sign bit set, negative ones are flipped.
+     */
+    static int sortableBits(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        return bits ^ ((bits >> 31) | 0x80000000);
+    }
+
+    /* sorts order/sortedKeys in place, giving up after maxMoves moves. */
+    private boolean insertionSort(int n, int maxMoves) {
+        int moves = 0;
+        for (int i = 1; i < n; i++) {
+            int key = sortedKeys[i];
+            int polygon = order[i];
+            int j = i - 1;
+            while (j >= 0 && Integer.compareUnsigned(sortedKeys[j], key) > 0) {
+                sortedKeys[j + 1] = sortedKeys[j];
+                order[j + 1] = order[j];
+                j--;
+                if (++moves > maxMoves) {
+                    // put the one being moved back somewhere sensible and stop;
+                    // the array is still a permutation for the radix sort.
+                    sortedKeys[j + 1] = key;
+                    order[j + 1] = polygon;
+                    return false;
+                }
+            }
+            sortedKeys[j + 1] = key;
+            order[j + 1] = polygon;
+        }
+        return true;
+    }
+
+    /* a least significant byte first radix sort of order by sortedKeys. */
+    private void radixSort(int n) {
+        int[] srcKeys = sortedKeys, srcOrder = order;
+        int[] dstKeys = keyScratch, dstOrder = orderScratch;
+        for (int shift = 0; shift < 32; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(srcKeys[i] >>> shift) & 0xFF]++;
+            }
+            if (counts[(srcKeys[0] >>> shift) & 0xFF] == n) {
+                // every key has the same byte here.
+                continue;
+            }
+            int total = 0;
+            for (int b = 0; b < 256; b++) {
+                int c = counts[b];
+                counts[b] = total;
+                total += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int at = counts[(srcKeys[i] >>> shift) & 0xFF]++;
+                dstKeys[at] = srcKeys[i];
+                dstOrder[at] = srcOrder[i];
+            }
+            int[] t = srcKeys; srcKeys = dstKeys; dstKeys = t;
+            t = srcOrder; srcOrder = dstOrder; dstOrder = t;
+        }
+        // keep the sorted arrays as the ones the next frame starts from.
+        sortedKeys = srcKeys;
+        order = srcOrder;
+        keyScratch = dstKeys;
+        orderScratch = dstOrder;
+    }
+}
+
+// code for comp261 assignments
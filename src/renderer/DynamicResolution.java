@@ -0,0 +1,57 @@
+package renderer;
+
+/**
+ * Chooses the resolution frames are drawn at while the view is rotating.
+ * After each rotating frame the scale is moved to the one that would have
+ * drawn that frame in the frame budget, if a frame's time goes with its
+ * number of pixels. The scale is rounded to steps of STEP, so the buffers
+ * are not remade every frame, and kept between MIN_SCALE and 1. Once the
+ * view has settled, frames are drawn at full size again.
+ */
+public class DynamicResolution {
+    public static final float MIN_SCALE = 0.25f;
+    public static final float STEP = 0.125f;
+
+    private final long budgetNanos;
+    private float scale = 1;
+    private boolean rotating;
+
+    /** Aims for rotating frames that take budgetNanos each. */
+    public DynamicResolution(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /** Notes that the view has started (or is still) rotating. */
+    public void startRotating() {
+        rotating = true;
+    }
+
+    /** Notes that the view has stopped rotating, so frames are drawn at full size. */
+    public void settle() {
+        rotating = false;
+    }
+
+    public boolean isRotating() {
+        return rotating;
+    }
+
+    /** The fraction of the canvas size to draw the next frame at. */
+    public float getScale() {
+        return rotating ? scale : 1;
+    }
+
+    /**
+     * Rescales the next rotating frame, given how long the frame just drawn
+     * at getScale() took. Frames drawn while settled change nothing.
+     */
+    public void frameDrawn(long frameNanos) {
+        if (!rotating) {
+            return;
+        }
+        float wanted = scale * (float)Math.sqrt(budgetNanos / (double)Math.max(1, frameNanos));
+        wanted = Math.round(wanted / STEP) * STEP;
+        scale = Math.max(MIN_SCALE, Math.min(1, wanted));
+    }
+}
+
+// code for comp261 assignments
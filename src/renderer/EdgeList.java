@@ -1,31 +1,71 @@
 package renderer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * EdgeList should store the data for the edge list of a single polygon in your
  * scene. A few method stubs have been provided so that it can be tested, but
  * you'll need to fill in all the details.
  * <p>
- * You'll probably want to add some setters as well as getters or, for example,
- * an addRow(y, xLeft, xRight, zLeft, zRight) method.
+ * The rows are kept in flat float arrays indexed by y - startY, which are only
+ * grown, never shrunk, so one EdgeList can be reset() and refilled for polygon
+ * after polygon. scratch() hands out one such list per thread. Rows that have
+ * not been set read as 0, and setting a row outside startY..endY is ignored.
+ * <p>
+ * For Gouraud shading each end of a row can also carry an RGB colour, kept 3
+ * floats per row in the same way.
  */
 public class EdgeList {
-    public List<HashMap<Integer, Float>> min = new ArrayList<>();
-    public List<HashMap<Integer, Float>> max = new ArrayList<>();
+    private static final int LEFT_X = 1, RIGHT_X = 2, LEFT_Z = 4, RIGHT_Z = 8, LEFT_COLOUR = 16, RIGHT_COLOUR = 32;
+    private static final ThreadLocal<EdgeList> SCRATCH = ThreadLocal.withInitial(() -> new EdgeList(0, 0));
+
+    private float[] leftX, rightX, leftZ, rightZ;
+    /** r, g, b at each end of each row. */
+    private float[] leftColour, rightColour;
+    /** which of the values have been set on each row. */
+    private byte[] set;
     private int startY, endY;
 
     public EdgeList(float startY, float endY) {
+        int rows = Math.max(1, (int)endY - (int)startY + 1);
+        leftX = new float[rows];
+        rightX = new float[rows];
+        leftZ = new float[rows];
+        rightZ = new float[rows];
+        leftColour = new float[rows * 3];
+        rightColour = new float[rows * 3];
+        set = new byte[rows];
         this.startY = (int)startY;
         this.endY = (int)endY;
-        min.add(new HashMap<Integer, Float>());
-        min.add(new HashMap<Integer, Float>());
-        max.add(new HashMap<Integer, Float>());
-        max.add(new HashMap<Integer, Float>());
     }
 
+    /** Returns this thread's reusable EdgeList. */
+    public static EdgeList scratch() {
+        return SCRATCH.get();
+    }
+
+    /**
+     * Empties the list and gives it a new range of rows, growing the arrays
+     * if they are too small.
+     */
+    public EdgeList reset(float startY, float endY) {
+        this.startY = (int)startY;
+        this.endY = (int)endY;
+        int rows = Math.max(1, this.endY - this.startY + 1);
+        if (rows > set.length) {
+            int size = Math.max(rows, set.length * 2);
+            leftX = new float[size];
+            rightX = new float[size];
+            leftZ = new float[size];
+            rightZ = new float[size];
+            leftColour = new float[size * 3];
+            rightColour = new float[size * 3];
+            set = new byte[size];
+        } else {
+            Arrays.fill(set, 0, rows, (byte)0);
+        }
+        return this;
+    }
 
     public int getStartY() {
         return startY;
@@ -35,63 +75,115 @@ public class EdgeList {
         return endY;
     }
 
+    /** Returns the index of row y, or -1 if it is outside the list. */
+    private int row(int y) {
+        int row = y - startY;
+        return row >= 0 && y <= endY ? row : -1;
+    }
+
+    private boolean isSet(int row, int flag) {
+        return row >= 0 && (set[row] & flag) != 0;
+    }
+
     public float getLeftX(int y) {
-        if (min.get(0).containsKey(y)) {
-            return min.get(0).get(y);
-        }
-        return 0;
+        int row = row(y);
+        return isSet(row, LEFT_X) ? leftX[row] : 0;
     }
 
+    /*
+     * Setting the left x of a row a second time sets its right x instead, if
+     * that has been set, and otherwise does nothing. The pipeline's edge walk
+     * relies on this where two left edges meet.
+     */
     public void setLeftX(int y, float x) {
-        if (min.get(0).containsKey(y)) {
-            max.get(0).replace(y, x);
-        } else {
-            min.get(0).put(y, x);
+        int row = row(y);
+        if (row < 0) {
+            return;
+        }
+        if ((set[row] & LEFT_X) == 0) {
+            leftX[row] = x;
+            set[row] |= LEFT_X;
+        } else if ((set[row] & RIGHT_X) != 0) {
+            rightX[row] = x;
         }
     }
 
     public float getRightX(int y) {
-        if (max.get(0).containsKey(y)) {
-            return max.get(0).get(y);
-        }
-        return 0;
+        int row = row(y);
+        return isSet(row, RIGHT_X) ? rightX[row] : 0;
     }
 
     public void setRightX(int y, float x) {
-        if (max.get(0).containsKey(y)) {
-            max.get(0).replace(y, x);
-        } else {
-            max.get(0).put(y, x);
+        int row = row(y);
+        if (row >= 0) {
+            rightX[row] = x;
+            set[row] |= RIGHT_X;
         }
     }
 
     public float getLeftZ(int y) {
-        if (min.get(1).containsKey(y)) {
-            return min.get(1).get(y);
-        }
-        return 0;
+        int row = row(y);
+        return isSet(row, LEFT_Z) ? leftZ[row] : 0;
     }
 
     public void setLeftZ(int y, float z) {
-        if (min.get(1).containsKey(y)) {
-            min.get(1).replace(y, z);
-        } else {
-            min.get(1).put(y, z);
+        int row = row(y);
+        if (row >= 0) {
+            leftZ[row] = z;
+            set[row] |= LEFT_Z;
         }
     }
 
     public float getRightZ(int y) {
-        if (max.get(1).containsKey(y)) {
-            return max.get(1).get(y);
-        }
-        return 0;
+        int row = row(y);
+        return isSet(row, RIGHT_Z) ? rightZ[row] : 0;
     }
 
     public void setRightZ(int y, float z) {
-        if (max.get(1).containsKey(y)) {
-            max.get(1).replace(y, z);
-        } else {
-            max.get(1).put(y, z);
+        int row = row(y);
+        if (row >= 0) {
+            rightZ[row] = z;
+            set[row] |= RIGHT_Z;
+        }
+    }
+
+    /** Returns channel 0 (red), 1 (green) or 2 (blue) of the left colour. */
+    public float getLeftColour(int y, int channel) {
+        int row = row(y);
+        return isSet(row, LEFT_COLOUR) ? leftColour[row * 3 + channel] : 0;
+    }
+
+    /* follows the same rule as setLeftX, so the colours stay with the x's. */
+    public void setLeftColour(int y, float r, float g, float b) {
+        int row = row(y);
+        if (row < 0) {
+            return;
+        }
+        if ((set[row] & LEFT_COLOUR) == 0) {
+            leftColour[row * 3] = r;
+            leftColour[row * 3 + 1] = g;
+            leftColour[row * 3 + 2] = b;
+            set[row] |= LEFT_COLOUR;
+        } else if ((set[row] & RIGHT_COLOUR) != 0) {
+            rightColour[row * 3] = r;
+            rightColour[row * 3 + 1] = g;
+            rightColour[row * 3 + 2] = b;
+        }
+    }
+
+    /** Returns channel 0 (red), 1 (green) or 2 (blue) of the right colour. */
+    public float getRightColour(int y, int channel) {
+        int row = row(y);
+        return isSet(row, RIGHT_COLOUR) ? rightColour[row * 3 + channel] : 0;
+    }
+
+    public void setRightColour(int y, float r, float g, float b) {
+        int row = row(y);
+        if (row >= 0) {
+            rightColour[row * 3] = r;
+            rightColour[row * 3 + 1] = g;
+            rightColour[row * 3 + 2] = b;
+            set[row] |= RIGHT_COLOUR;
         }
     }
 }
@@ -0,0 +1,302 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A colour buffer and depth buffer that live for as long as the renderer
+ * does. The colours are the pixels of a TYPE_INT_RGB BufferedImage, written
+ * directly through its DataBufferInt, so a finished frame is already an image
+ * and needs no copying. Both buffers are flat arrays indexed by
+ * y * width + x.
+ * <p>
+ * With occlusion culling on, it also keeps a two level coarse depth pyramid.
+ * The first level holds, for each COARSE x COARSE block of pixels, a depth no
+ * nearer than the farthest pixel in the block, and the second the farthest of
+ * those for each TILE_BLOCKS x TILE_BLOCKS tile of blocks. Anything whose
+ * nearest depth is farther than that for every block it covers cannot show.
+ * <p>
+ * Depths only ever get nearer during a frame, so any depth a block has held
+ * stays safe to use, and blocks are kept up to date as cheaply as possible.
+ * A block a triangle has been drawn over completely is lowered to the
+ * triangle's farthest depth by coverBlock(), a single compare. A block only
+ * drawn on in part is marked by touchBlock(), and its depth is read back from
+ * the full depth buffer only when a triangle test needs it. A tile is worked
+ * out again from its blocks only when one of them has been lowered and the
+ * tile is asked about. Culling counters are kept for each frame.
+ */
+public class FrameBuffer {
+    private final int width, height;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final float[] depth;
+
+    /** Width and height of the blocks of the coarse depth pyramid. */
+    public static final int COARSE = 8;
+    /** Width and height, in blocks, of the tiles of the pyramid's second level. */
+    public static final int TILE_BLOCKS = 8;
+    /**
+     * Rectangles of fewer pixels than this are tested without reading back
+     * any blocks, as drawing what is in them costs less than the reading.
+     */
+    static final int READ_BACK_MIN = 4 * COARSE * COARSE;
+    private final int coarseWidth, coarseHeight;
+    private final float[] coarseDepth;
+    private final boolean[] coarseStale;
+    private final int tilesWide;
+    private final float[] tileDepth;
+    private final boolean[] tileStale;
+    private boolean occlusionCulling;
+    private final LongAdder trianglesCulled = new LongAdder();
+    private final LongAdder spansCulled = new LongAdder();
+    private final LongAdder spanPixelsCulled = new LongAdder();
+    /** The source column of each target column, kept between scaleTo() calls. */
+    private int[] columns = new int[0];
+
+    public FrameBuffer(int width, int height) {
+        this(width, height, true);
+    }
+
+    private FrameBuffer(int width, int height, boolean withImage) {
+        this.width = width;
+        this.height = height;
+        if (withImage) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        } else {
+            image = null;
+            pixels = new int[width * height];
+        }
+        depth = new float[width * height];
+        coarseWidth = (width + COARSE - 1) / COARSE;
+        coarseHeight = (height + COARSE - 1) / COARSE;
+        coarseDepth = new float[coarseWidth * coarseHeight];
+        coarseStale = new boolean[coarseWidth * coarseHeight];
+        tilesWide = (coarseWidth + TILE_BLOCKS - 1) / TILE_BLOCKS;
+        tileDepth = new float[tilesWide * ((coarseHeight + TILE_BLOCKS - 1) / TILE_BLOCKS)];
+        tileStale = new boolean[tileDepth.length];
+    }
+
+    /**
+     * Returns a FrameBuffer whose pixels are a plain int array with no image
+     * behind them, for drawing something other than colours, e.g. polygon
+     * numbers.
+     */
+    public static FrameBuffer withoutImage(int width, int height) {
+        return new FrameBuffer(width, height, false);
+    }
+
+    /**
+     * Fills every pixel with the given colour and every depth with MAX_VALUE,
+     * and zeroes the culling counters.
+     */
+    public void clear(int rgb) {
+        Arrays.fill(pixels, rgb);
+        Arrays.fill(depth, Float.MAX_VALUE);
+        Arrays.fill(coarseDepth, Float.MAX_VALUE);
+        Arrays.fill(coarseStale, false);
+        Arrays.fill(tileDepth, Float.MAX_VALUE);
+        Arrays.fill(tileStale, false);
+        trianglesCulled.reset();
+        spansCulled.reset();
+        spanPixelsCulled.reset();
+    }
+
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    public void setOcclusionCulling(boolean on) {
+        occlusionCulling = on;
+    }
+
+    /**
+     * Returns true if nothing at the given depth or farther can be drawn in
+     * the pixels minX <= x < maxX, minY <= y < maxY (which must be inside the
+     * frame). A small tolerance is allowed for rounding in the rasterizers.
+     * Each tile under the rectangle is tried first, and its blocks only if
+     * the tile as a whole might show the depth. If the rectangle has at
+     * least READ_BACK_MIN pixels, a block drawn on in part since it was last
+     * read back is read back before it is given up on, so this costs up to a
+     * read of every pixel in the rectangle; it is meant for whole triangles,
+     * not spans.
+     * <p>
+     * Only the blocks under the rectangle are read or brought up to date, so
+     * threads asking about rectangles in different tiles (of a multiple of
+     * COARSE pixels) do not interfere over blocks. A tile worked out while
+     * another thread lowers one of its blocks may miss the change, which only
+     * means less is culled.
+     */
+    public boolean isOccluded(float nearestZ, int minX, int minY, int maxX, int maxY) {
+        return isOccluded(nearestZ, minX, minY, maxX, maxY, (maxX - minX) * (maxY - minY) >= READ_BACK_MIN);
+    }
+
+    /**
+     * Like isOccluded(), but only uses the depths the pyramid already holds,
+     * so it never reads the full depth buffer. For spans.
+     */
+    boolean isSpanOccluded(float nearestZ, int minX, int maxX, int y) {
+        return isOccluded(nearestZ, minX, y, maxX, y + 1, false);
+    }
+
+    private boolean isOccluded(float nearestZ, int minX, int minY, int maxX, int maxY, boolean readBack) {
+        if (minX >= maxX || minY >= maxY) {
+            return true;
+        }
+        float z = nearestZ - 1e-4f * Math.max(1, Math.abs(nearestZ));
+        int bx0 = minX / COARSE, bx1 = (maxX - 1) / COARSE;
+        int by0 = minY / COARSE, by1 = (maxY - 1) / COARSE;
+        for (int ty = by0 / TILE_BLOCKS; ty <= by1 / TILE_BLOCKS; ty++) {
+            for (int tx = bx0 / TILE_BLOCKS; tx <= bx1 / TILE_BLOCKS; tx++) {
+                int tile = ty * tilesWide + tx;
+                if (tileStale[tile]) {
+                    updateTile(tx, ty);
+                }
+                if (z > tileDepth[tile]) {
+                    continue;
+                }
+                int endY = Math.min(by1, ty * TILE_BLOCKS + TILE_BLOCKS - 1);
+                int endX = Math.min(bx1, tx * TILE_BLOCKS + TILE_BLOCKS - 1);
+                for (int by = Math.max(by0, ty * TILE_BLOCKS); by <= endY; by++) {
+                    for (int bx = Math.max(bx0, tx * TILE_BLOCKS); bx <= endX; bx++) {
+                        int block = by * coarseWidth + bx;
+                        if (z > coarseDepth[block]) {
+                            continue;
+                        }
+                        if (!readBack || !coarseStale[block]) {
+                            return false;
+                        }
+                        updateBlock(bx, by);
+                        if (!(z > coarseDepth[block])) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Notes that every pixel of block (bx, by) has been drawn with a depth no
+     * farther than farthestZ, lowering the block's coarse depth if that is
+     * nearer.
+     */
+    void coverBlock(int bx, int by, float farthestZ) {
+        int block = by * coarseWidth + bx;
+        if (farthestZ < coarseDepth[block]) {
+            coarseDepth[block] = farthestZ;
+            tileStale[(by / TILE_BLOCKS) * tilesWide + bx / TILE_BLOCKS] = true;
+        }
+    }
+
+    /** Notes that some pixels of block (bx, by) may have been drawn. */
+    void touchBlock(int bx, int by) {
+        coarseStale[by * coarseWidth + bx] = true;
+    }
+
+    /* sets a block's coarse depth to the farthest depth in it. */
+    private void updateBlock(int bx, int by) {
+        coarseStale[by * coarseWidth + bx] = false;
+        float far = -Float.MAX_VALUE;
+        int endX = Math.min(width, (bx + 1) * COARSE);
+        int endY = Math.min(height, (by + 1) * COARSE);
+        for (int y = by * COARSE; y < endY; y++) {
+            for (int x = bx * COARSE; x < endX; x++) {
+                far = Math.max(far, depth[y * width + x]);
+            }
+        }
+        coverBlock(bx, by, far);
+    }
+
+    /* sets a tile's depth to the farthest of its blocks' depths. */
+    private void updateTile(int tx, int ty) {
+        tileStale[ty * tilesWide + tx] = false;
+        float far = -Float.MAX_VALUE;
+        int endX = Math.min(coarseWidth, (tx + 1) * TILE_BLOCKS);
+        int endY = Math.min(coarseHeight, (ty + 1) * TILE_BLOCKS);
+        for (int by = ty * TILE_BLOCKS; by < endY; by++) {
+            for (int bx = tx * TILE_BLOCKS; bx < endX; bx++) {
+                far = Math.max(far, coarseDepth[by * coarseWidth + bx]);
+            }
+        }
+        tileDepth[ty * tilesWide + tx] = far;
+    }
+
+    /** Counts a triangle skipped by occlusion culling. */
+    void countCulledTriangle() {
+        trianglesCulled.increment();
+    }
+
+    /** Counts a span of pixels skipped by occlusion culling. */
+    void countCulledSpan(int pixels) {
+        spansCulled.increment();
+        spanPixelsCulled.add(pixels);
+    }
+
+    /** Triangles skipped by occlusion culling since the last clear(). */
+    public long getTrianglesCulled() {
+        return trianglesCulled.sum();
+    }
+
+    /** Spans skipped by occlusion culling since the last clear(). */
+    public long getSpansCulled() {
+        return spansCulled.sum();
+    }
+
+    /**
+     * Pixels in the spans skipped by occlusion culling since the last clear().
+     * The pixels of culled triangles are not counted, as they were never
+     * worked out.
+     */
+    public long getSpanPixelsCulled() {
+        return spanPixelsCulled.sum();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** The packed RGB colour of each pixel. */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /** The depth of each pixel. */
+    public float[] getDepth() {
+        return depth;
+    }
+
+    /**
+     * Scales the pixels up (or down) to fill another pixel array of the given
+     * size, taking the nearest pixel for each.
+     */
+    public void scaleTo(int[] target, int targetWidth, int targetHeight) {
+        if (columns.length != targetWidth) {
+            columns = new int[targetWidth];
+        }
+        for (int x = 0; x < targetWidth; x++) {
+            columns[x] = (int)((long)x * width / targetWidth);
+        }
+        for (int y = 0; y < targetHeight; y++) {
+            int from = (int)((long)y * height / targetHeight) * width;
+            int to = y * targetWidth;
+            for (int x = 0; x < targetWidth; x++) {
+                target[to + x] = pixels[from + columns[x]];
+            }
+        }
+    }
+
+    /** The image that shows the pixels, or null for withoutImage(). */
+    public BufferedImage getImage() {
+        return image;
+    }
+}
+
+// code for comp261 assignments
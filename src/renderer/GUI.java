@@ -23,6 +23,8 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.border.Border;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /**
  * A simple GUI, similar to the one in assignments 1 and 2, that you can base
@@ -59,7 +61,8 @@ public abstract class GUI {
 	 * don't need to call this unless you modify this GUI.
 	 */
 	public void redraw() {
-		frame.repaint();
+		if (frame != null)
+			frame.repaint();
 	}
 
 	/**
@@ -91,15 +94,35 @@ public abstract class GUI {
 	private static final Font FONT = new Font("Courier", Font.BOLD, 36);
 
 	public GUI() {
-		initialise();
+		this(true);
+	}
+
+	/**
+	 * Makes the GUI with or without its window. Without one, e.g. to render
+	 * offscreen or in tests, redraw() does nothing.
+	 */
+	protected GUI(boolean window) {
+		if (window)
+			initialise();
+	}
+
+	/**
+	 * Returns the size of the drawing canvas. It is called while the window
+	 * is made, before a subclass's fields are set, so an override should only
+	 * use static values.
+	 */
+	protected Dimension getCanvasSize() {
+		return DRAWING_SIZE;
 	}
 
 	@SuppressWarnings("serial")
 	private void initialise() {
+		final Dimension drawingSize = getCanvasSize();
+
 		// make the frame
 		frame = new JFrame();
 		frame.setLayout(new BoxLayout(frame.getContentPane(), BoxLayout.LINE_AXIS));
-		frame.setSize(new Dimension(DRAWING_SIZE.width + CONTROLS_SIZE.width, DRAWING_SIZE.height));
+		frame.setSize(new Dimension(drawingSize.width + CONTROLS_SIZE.width, drawingSize.height));
 		frame.setResizable(false);
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
@@ -110,19 +133,19 @@ public abstract class GUI {
 				BufferedImage image = render();
 				if (image == null) {
 					g.setColor(Color.WHITE);
-					g.fillRect(0, 0, DRAWING_SIZE.width, DRAWING_SIZE.height);
+					g.fillRect(0, 0, drawingSize.width, drawingSize.height);
 					g.setColor(Color.BLACK);
 					g.setFont(FONT);
-					g.drawString("IMAGE IS NULL", 50, DRAWING_SIZE.height - 50);
+					g.drawString("IMAGE IS NULL", 50, drawingSize.height - 50);
 				} else {
 					g.drawImage(image, 0, 0, null);
 				}
 			}
 		};
 		// fix its size
-		drawing.setPreferredSize(DRAWING_SIZE);
-		drawing.setMinimumSize(DRAWING_SIZE);
-		drawing.setMaximumSize(DRAWING_SIZE);
+		drawing.setPreferredSize(drawingSize);
+		drawing.setMinimumSize(drawingSize);
+		drawing.setMaximumSize(drawingSize);
 		drawing.setVisible(true);
 
 		// set up the load button
@@ -165,6 +188,18 @@ public abstract class GUI {
 		sliderparty.add(green);
 		sliderparty.add(blue);
 
+		// redraw as the sliders move. the renderer works out for itself that
+		// only the lighting has changed.
+		ChangeListener redrawOnChange = new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent ev) {
+				redraw();
+			}
+		};
+		red.addChangeListener(redrawOnChange);
+		green.addChangeListener(redrawOnChange);
+		blue.addChangeListener(redrawOnChange);
+
 		// this is not a best-practices way of doing key listening; instead you
 		// should use either a KeyListener or an InputMap/ActionMap combo. but
 		// this method neatly avoids any focus issues (KeyListener) and requires
@@ -0,0 +1,429 @@
+package renderer;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A structure-of-arrays version of a Scene. Instead of a list of Polygon
+ * objects, each holding three Vector3Ds and a Color, the whole model is kept
+ * in a few flat arrays:
+ * <ul>
+ * <li>positions - 3 floats (x, y, z) per unique vertex.</li>
+ * <li>indices - 3 ints per triangle, each the number of a vertex in
+ * positions. Triangles that share a corner share the vertex.</li>
+ * <li>reflectance - one packed 0xRRGGBB int per triangle.</li>
+ * <li>lights - the (x, y, z) direction of each light source, 3 floats per
+ * light, and lightColours - one packed 0xRRGGBB int per light.</li>
+ * <li>normals - the unit normal of each triangle, 3 floats per triangle.
+ * They are worked out once, and transform(Transform, Transform) rotates them
+ * along with the scene instead of working them out again.</li>
+ * <li>vertexNormals - for Gouraud shading, the unit normal at each vertex,
+ * the average of the normals of the triangles that share it. They are also
+ * worked out once, and rotated only when a transformed scene asks for
+ * them.</li>
+ * </ul>
+ * The arrays are handed out directly (not copied), so the pipeline can walk
+ * them without any per-polygon objects, and transform each shared vertex only
+ * once.
+ * <p>
+ * For very large meshes a scene can be made compact, which keeps the positions
+ * as 16-bit QuantizedPositions instead of floats. A compact scene is turned
+ * back into floats as it goes through transform(), so the rest of the pipeline
+ * never sees the difference.
+ */
+public class PackedScene {
+	/** Number of floats used by each triangle in an unindexed vertex array. */
+	public static final int FLOATS_PER_POLYGON = 9;
+	/** Vertices dequantized at a time when transforming a compact scene. */
+	private static final int DEQUANTIZE_BLOCK = 1024;
+
+	private final float[] positions;
+	private final QuantizedPositions quantized;
+	private final int vertexCount;
+	private final int[] indices;
+	private final int[] reflectance;
+	private final int polygonCount;
+	private final float[] lights;
+	private final int[] lightColours;
+	private float[] bounds;
+	private float[] normals;
+	private float[] vertexNormals;
+	/** Where a transformed scene's vertex normals come from when asked for. */
+	private PackedScene normalSource;
+	private Transform normalRotation;
+
+	/**
+	 * @param positions
+	 *            at least vertexCount * 3 floats of vertex positions.
+	 * @param vertexCount
+	 *            the number of vertices in positions.
+	 * @param indices
+	 *            at least polygonCount * 3 vertex numbers.
+	 * @param reflectance
+	 *            at least polygonCount packed RGB values.
+	 * @param polygonCount
+	 *            the number of triangles in the scene.
+	 * @param light
+	 *            the light directions, {x, y, z} for each light, or null if
+	 *            there are none. The lights are all white.
+	 */
+	public PackedScene(float[] positions, int vertexCount, int[] indices, int[] reflectance, int polygonCount,
+			float[] light) {
+		this(positions, null, vertexCount, indices, reflectance, polygonCount, light, null);
+		if (positions.length < vertexCount * 3)
+			throw new IllegalArgumentException("PackedScene: positions too small for " + vertexCount + " vertices");
+	}
+
+	private PackedScene(float[] positions, QuantizedPositions quantized, int vertexCount, int[] indices,
+			int[] reflectance, int polygonCount, float[] lights, int[] lightColours) {
+		if (indices.length < polygonCount * 3 || reflectance.length < polygonCount)
+			throw new IllegalArgumentException("PackedScene: arrays too small for " + polygonCount + " polygons");
+		int lightCount = lights == null ? 0 : lights.length / 3;
+		if (lights != null && lights.length % 3 != 0)
+			throw new IllegalArgumentException("PackedScene: light directions need 3 floats each");
+		if (lightColours == null) {
+			lightColours = new int[lightCount];
+			Arrays.fill(lightColours, 0xFFFFFF);
+		} else if (lightColours.length != lightCount) {
+			throw new IllegalArgumentException("PackedScene: " + lightColours.length + " colours for " + lightCount
+					+ " lights");
+		}
+		this.positions = positions;
+		this.quantized = quantized;
+		this.vertexCount = vertexCount;
+		this.indices = indices;
+		this.reflectance = reflectance;
+		this.polygonCount = polygonCount;
+		this.lights = lights;
+		this.lightColours = lightColours;
+	}
+
+	/**
+	 * Builds a scene from unindexed triangles, 9 floats per triangle, merging
+	 * corners that have exactly the same position.
+	 */
+	public static PackedScene fromTriangles(float[] vertices, int[] reflectance, int polygonCount, float[] light) {
+		VertexIndexer indexer = new VertexIndexer(polygonCount * 3);
+		int[] indices = new int[polygonCount * 3];
+		for (int i = 0; i < polygonCount * 3; i++)
+			indices[i] = indexer.add(vertices[i * 3], vertices[i * 3 + 1], vertices[i * 3 + 2]);
+		return new PackedScene(indexer.positions(), indexer.size(), indices, reflectance, polygonCount, light);
+	}
+
+	/** Packs a list of polygons and a light into a new PackedScene. */
+	public static PackedScene fromPolygons(List<Scene.Polygon> polygons, Vector3D lightPos) {
+		return fromPolygons(polygons, lightPos == null ? null : new Vector3D[] { lightPos }, null);
+	}
+
+	/**
+	 * Packs a list of polygons and any number of lights, with a colour for
+	 * each (or null for all white), into a new PackedScene.
+	 */
+	public static PackedScene fromPolygons(List<Scene.Polygon> polygons, Vector3D[] lightPositions,
+			Color[] colours) {
+		int count = polygons == null ? 0 : polygons.size();
+		float[] vertices = new float[count * FLOATS_PER_POLYGON];
+		int[] reflectance = new int[count];
+		for (int p = 0; p < count; p++) {
+			Scene.Polygon poly = polygons.get(p);
+			int offset = p * FLOATS_PER_POLYGON;
+			for (Vector3D v : poly.getVertices()) {
+				vertices[offset++] = v.x;
+				vertices[offset++] = v.y;
+				vertices[offset++] = v.z;
+			}
+			reflectance[p] = poly.getReflectance().getRGB() & 0xFFFFFF;
+		}
+		float[] lights = null;
+		int[] lightColours = null;
+		if (lightPositions != null && lightPositions.length > 0) {
+			lights = new float[lightPositions.length * 3];
+			lightColours = new int[lightPositions.length];
+			for (int i = 0; i < lightPositions.length; i++) {
+				lights[i * 3] = lightPositions[i].x;
+				lights[i * 3 + 1] = lightPositions[i].y;
+				lights[i * 3 + 2] = lightPositions[i].z;
+				lightColours[i] = colours == null ? 0xFFFFFF : colours[i].getRGB() & 0xFFFFFF;
+			}
+		}
+		return fromTriangles(vertices, reflectance, count, null).withLights(lights, lightColours);
+	}
+
+	/**
+	 * Returns a new PackedScene that shares everything but the vertex positions
+	 * with this one.
+	 */
+	public PackedScene withPositions(float[] newPositions) {
+		return new PackedScene(newPositions, null, vertexCount, indices, reflectance, polygonCount, lights,
+				lightColours);
+	}
+
+	/**
+	 * Returns a new PackedScene that shares the geometry and light colours of
+	 * this one but points its lights in the given directions, 3 floats for
+	 * each of its lights.
+	 */
+	public PackedScene withLight(float[] newLight) {
+		return withLights(newLight, lightColours);
+	}
+
+	/**
+	 * Returns a new PackedScene that shares the geometry of this one but has
+	 * the given lights: 3 floats of direction and one packed colour for each,
+	 * or nulls for no lights.
+	 */
+	public PackedScene withLights(float[] newLights, int[] newColours) {
+		PackedScene lit = new PackedScene(positions, quantized, vertexCount, indices, reflectance, polygonCount,
+				newLights, newColours);
+		lit.bounds = bounds;
+		lit.normals = normals;
+		lit.vertexNormals = vertexNormals;
+		lit.normalSource = normalSource;
+		lit.normalRotation = normalRotation;
+		return lit;
+	}
+
+	/**
+	 * Returns a copy of this scene whose positions are stored as 16-bit
+	 * QuantizedPositions, or this scene if it is already compact.
+	 */
+	public PackedScene compact() {
+		if (quantized != null)
+			return this;
+		QuantizedPositions q = QuantizedPositions.quantize(positions, vertexCount, getBounds());
+		PackedScene compact = new PackedScene(null, q, vertexCount, indices, reflectance, polygonCount, lights,
+				lightColours);
+		compact.bounds = bounds;
+		compact.normals = normals;
+		compact.vertexNormals = vertexNormals;
+		return compact;
+	}
+
+	public boolean isCompact() {
+		return quantized != null;
+	}
+
+	/** Returns the quantized positions of a compact scene, or null. */
+	public QuantizedPositions getQuantizedPositions() {
+		return quantized;
+	}
+
+	/**
+	 * Returns a new scene with the transform applied to every vertex. The
+	 * result always stores its positions as floats.
+	 */
+	public PackedScene transform(Transform transform) {
+		return transform(transform, new float[vertexCount * 3]);
+	}
+
+	/**
+	 * As transform(Transform), but writing the new positions into the given
+	 * array, which must hold at least getVertexCount() * 3 floats. This lets a
+	 * caller reuse one array frame after frame. Large scenes are transformed
+	 * on the RenderThreads pool.
+	 */
+	public PackedScene transform(Transform transform, float[] destination) {
+		if (quantized == null) {
+			transform.transformAll(positions, destination, vertexCount, RenderThreads.getPool());
+		} else {
+			// dequantize a block at a time into the destination, then
+			// transform that block in place.
+			for (int start = 0; start < vertexCount; start += DEQUANTIZE_BLOCK) {
+				int count = Math.min(DEQUANTIZE_BLOCK, vertexCount - start);
+				for (int i = start * 3; i < (start + count) * 3; i++)
+					destination[i] = quantized.get(i);
+				transform.transformAll(destination, start * 3, destination, start * 3, count);
+			}
+		}
+		return new PackedScene(destination, null, vertexCount, indices, reflectance, polygonCount, lights,
+				lightColours);
+	}
+
+	/**
+	 * As transform(Transform), but also rotating this scene's face normals by
+	 * rotation to give the new scene's normals. The transform must be rotation
+	 * followed only by translations and positive uniform scales (as in
+	 * Pipeline.viewScene), or the normals will be wrong.
+	 */
+	public PackedScene transform(Transform transform, Transform rotation) {
+		return transform(transform, rotation, new float[vertexCount * 3], new float[polygonCount * 3]);
+	}
+
+	/**
+	 * As transform(Transform, Transform), but writing the new positions and
+	 * normals into the given arrays, which must hold at least
+	 * getVertexCount() * 3 and getPolygonCount() * 3 floats.
+	 */
+	public PackedScene transform(Transform transform, Transform rotation, float[] positionsDestination,
+			float[] normalsDestination) {
+		PackedScene moved = transform(transform, positionsDestination);
+		moved.normals = normalsDestination;
+		rotation.transformAll(getNormals(), moved.normals, polygonCount, RenderThreads.getPool());
+		moved.normalSource = this;
+		moved.normalRotation = rotation;
+		return moved;
+	}
+
+	/**
+	 * Returns the vertex positions, 3 floats per vertex. For a compact scene
+	 * this dequantizes into a new array on every call.
+	 */
+	public float[] getPositions() {
+		return quantized == null ? positions : quantized.dequantize();
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public int[] getIndices() {
+		return indices;
+	}
+
+	public int[] getReflectance() {
+		return reflectance;
+	}
+
+	public int getPolygonCount() {
+		return polygonCount;
+	}
+
+	/**
+	 * Returns the direction of the first light, or null if there are no
+	 * lights.
+	 */
+	public float[] getLight() {
+		if (lights == null || lights.length == 0)
+			return null;
+		return lights.length == 3 ? lights : Arrays.copyOf(lights, 3);
+	}
+
+	/** Returns the light directions, 3 floats per light, or null if there are none. */
+	public float[] getLights() {
+		return lights;
+	}
+
+	/** Returns the colour of each light, packed as 0xRRGGBB. */
+	public int[] getLightColours() {
+		return lightColours;
+	}
+
+	public int getLightCount() {
+		return lightColours.length;
+	}
+
+	/**
+	 * Returns the bounding box of the vertex positions as {minX, minY, minZ,
+	 * maxX, maxY, maxZ}. It is worked out the first time it is asked for.
+	 */
+	public float[] getBounds() {
+		if (bounds == null) {
+			float[] b = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE,
+					-Float.MAX_VALUE };
+			for (int i = 0; i < vertexCount * 3; i += 3) {
+				for (int axis = 0; axis < 3; axis++) {
+					float value = quantized == null ? positions[i + axis] : quantized.get(i + axis);
+					b[axis] = Math.min(b[axis], value);
+					b[axis + 3] = Math.max(b[axis + 3], value);
+				}
+			}
+			bounds = b;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Returns the unit normal of each triangle, 3 floats (x, y, z) per
+	 * triangle, as Pipeline.calculateNormal would give it. They are worked out
+	 * the first time they are asked for, unless this scene was made by
+	 * transform(Transform, Transform).
+	 */
+	public float[] getNormals() {
+		if (normals == null) {
+			float[] points = getPositions();
+			float[] n = new float[polygonCount * 3];
+			for (int p = 0; p < polygonCount; p++) {
+				Vector3D normal = Pipeline.calculateNormal(points, indices, p);
+				n[p * 3] = normal.x;
+				n[p * 3 + 1] = normal.y;
+				n[p * 3 + 2] = normal.z;
+			}
+			normals = n;
+		}
+		return normals;
+	}
+
+	/**
+	 * Returns the unit normal at each vertex, 3 floats per vertex: the sum of
+	 * the normals of the triangles using the vertex, scaled to unit length
+	 * (or 0 if they cancel out). Only triangles that share the vertex itself,
+	 * not just its position, count. They are worked out the first time they
+	 * are asked for, by rotating the source scene's for a scene made by
+	 * transform(Transform, Transform).
+	 */
+	public float[] getVertexNormals() {
+		if (vertexNormals == null) {
+			float[] n = new float[vertexCount * 3];
+			if (normalSource != null) {
+				normalRotation.transformAll(normalSource.getVertexNormals(), n, vertexCount,
+						RenderThreads.getPool());
+			} else {
+				float[] faces = getNormals();
+				for (int i = 0; i < polygonCount * 3; i++) {
+					int v = indices[i] * 3, p = (i / 3) * 3;
+					n[v] += faces[p];
+					n[v + 1] += faces[p + 1];
+					n[v + 2] += faces[p + 2];
+				}
+				for (int v = 0; v < n.length; v += 3) {
+					float length = (float) Math.sqrt(n[v] * n[v] + n[v + 1] * n[v + 1] + n[v + 2] * n[v + 2]);
+					if (length > 0) {
+						n[v] /= length;
+						n[v + 1] /= length;
+						n[v + 2] /= length;
+					}
+				}
+			}
+			vertexNormals = n;
+		}
+		return vertexNormals;
+	}
+
+	/** Supplies bounds that are already known, e.g. from a cache. */
+	void setBounds(float[] knownBounds) {
+		bounds = knownBounds;
+	}
+
+	/**
+	 * Returns the average number of triangle corners that use each unique
+	 * vertex. 1 means no vertices were shared.
+	 */
+	public float getDedupRatio() {
+		return vertexCount == 0 ? 1 : (polygonCount * 3) / (float) vertexCount;
+	}
+
+	/** Returns the first light as a Vector3D, or null if there is none. */
+	public Vector3D getLightVector() {
+		return getLightCount() == 0 ? null : new Vector3D(lights[0], lights[1], lights[2]);
+	}
+
+	/** Builds a Polygon object for the triangle at the given index. */
+	public Scene.Polygon getPolygon(int index) {
+		float[] points = new float[FLOATS_PER_POLYGON];
+		for (int corner = 0; corner < 9; corner++) {
+			int i = indices[index * 3 + corner / 3] * 3 + corner % 3;
+			points[corner] = quantized == null ? positions[i] : quantized.get(i);
+		}
+		int rgb = reflectance[index];
+		return new Scene.Polygon(points, new int[] { (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF });
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d polygons, %d unique vertices (%.2f corners per vertex)", polygonCount, vertexCount,
+				getDedupRatio());
+	}
+}
+
+// code for comp261 assignments
@@ -6,7 +6,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import javafx.scene.shape.Line;
 import renderer.Scene.Polygon;
 
 /**
@@ -19,6 +18,15 @@ import renderer.Scene.Polygon;
  */
 public class Pipeline {
 
+    /** Width and height of the blocks rasterizeHalfSpace tests at once. */
+    static final int BLOCK = 8;
+    /** Fixed point steps per pixel used by rasterizeFixedPoint: 28.4. */
+    static final int SUBPIXELS = 16;
+    /** Spans shorter than this are drawn without testing them against the coarse depth. */
+    static final int SPAN_CULL_MIN = 2 * FrameBuffer.COARSE;
+    /** Index buffer for a positions array holding one unindexed triangle. */
+    private static final int[] SINGLE_TRIANGLE = {0, 1, 2};
+
     /**
      * Returns true if the given polygon is facing away from the camera (and so
      * should be hidden), and false otherwise.
@@ -32,6 +40,29 @@ public class Pipeline {
         }
     }
 
+    /**
+     * Returns true if the given polygon of an indexed vertex buffer is facing
+     * away from the camera. Only the sign of the normal's z matters, so the
+     * normal is not normalised.
+     *
+     * @param positions xyz positions, 3 floats per vertex.
+     * @param indices   3 vertex numbers per polygon.
+     */
+    public static boolean isHidden(float[] positions, int[] indices, int polygon) {
+        int a = indices[polygon * 3] * 3, b = indices[polygon * 3 + 1] * 3, c = indices[polygon * 3 + 2] * 3;
+        float ax = positions[b] - positions[a], ay = positions[b + 1] - positions[a + 1];
+        float bx = positions[c] - positions[b], by = positions[c + 1] - positions[b + 1];
+        return ax * by - ay * bx > 0;
+    }
+
+    /**
+     * Returns true if the given polygon of a packed scene is facing away from
+     * the camera, going by the scene's face normals.
+     */
+    public static boolean isHidden(PackedScene scene, int polygon) {
+        return scene.getNormals()[polygon * 3 + 2] > 0;
+    }
+
     /**
      * Computes the colour of a polygon on the screen, once the lights, their
      * angles relative to the polygon's face, and the reflectance of the polygon
@@ -44,25 +75,183 @@ public class Pipeline {
      *                       on the direction.
      */
     public static Color getShading(Polygon poly, Vector3D lightDirection, Color lightColor, Color ambientLight) {
-        int[] ambientLightValues = {ambientLight.getRed(), ambientLight.getGreen(), ambientLight.getBlue()};
-        int[] reflectanceValues = {poly.reflectance.getRed(), poly.reflectance.getGreen(), poly.reflectance.getBlue()};
-        int[] incidentValues = {lightColor.getRed(), lightColor.getGreen(), lightColor.getBlue()};
         Vector3D normal = calculateNormal(poly);
-        float cosOfVector = lightDirection.cosTheta(normal);
-        List<Integer> shade = new ArrayList<>();
+        return new Color(shade(normal.x, normal.y, normal.z, poly.reflectance.getRGB(), lightDirection.x,
+                lightDirection.y, lightDirection.z, lightColor.getRGB(), ambientLight.getRGB()));
+    }
+
+    /**
+     * Computes the colour of the polygon at the given index of a packed scene.
+     *
+     * @see #getShading(Polygon, Vector3D, Color, Color)
+     */
+    public static Color getShading(PackedScene scene, int polygon, Vector3D lightDirection, Color lightColor, Color ambientLight) {
+        return new Color(shade(scene, polygon, lightDirection, lightColor.getRGB(), ambientLight.getRGB()));
+    }
+
+    /**
+     * As getShading(PackedScene, int, Vector3D, Color, Color), but with the
+     * colours packed as 0xRRGGBB ints, and allocating nothing.
+     */
+    public static int shade(PackedScene scene, int polygon, Vector3D lightDirection, int lightColor, int ambientLight) {
+        float[] normals = scene.getNormals();
+        return shade(normals[polygon * 3], normals[polygon * 3 + 1], normals[polygon * 3 + 2],
+                scene.getReflectance()[polygon], lightDirection.x, lightDirection.y, lightDirection.z, lightColor,
+                ambientLight);
+    }
+
+    /**
+     * The shading kernel behind getShading: the colour of a face with the
+     * given unit normal and reflectance, lit by a directional light (which
+     * need not be a unit vector) and ambient light. The colours given are
+     * packed 0xRRGGBB ints (anything above those bits is ignored), and the
+     * colour returned is opaque, as Color.getRGB() would give it.
+     */
+    public static int shade(float nx, float ny, float nz, int reflectance, float lx, float ly, float lz,
+            int lightColor, int ambientLight) {
+        float lightMag = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+        float cosOfVector = (lx * nx + ly * ny + lz * nz) / lightMag;
+        return 0xFF000000 | shadeChannel(lightColor >> 16, ambientLight >> 16, reflectance >> 16, cosOfVector) << 16
+                | shadeChannel(lightColor >> 8, ambientLight >> 8, reflectance >> 8, cosOfVector) << 8
+                | shadeChannel(lightColor, ambientLight, reflectance, cosOfVector);
+    }
+
+    /**
+     * shade(...) for the polygons [start, end) of a set of arrays, writing
+     * each polygon's colour to shades[polygon]. The light is only worked out
+     * once, and the loop has no branches or allocation, so it can be run over
+     * a whole scene at once.
+     *
+     * @param normals     3 floats per polygon, as PackedScene.getNormals().
+     * @param reflectance one packed colour per polygon.
+     */
+    public static void shadeAll(float[] normals, int[] reflectance, int start, int end, Vector3D lightDirection,
+            int lightColor, int ambientLight, int[] shades) {
+        float lx = lightDirection.x, ly = lightDirection.y, lz = lightDirection.z;
+        float lightMag = lightDirection.mag;
+        for (int p = start; p < end; p++) {
+            float cosOfVector = (lx * normals[p * 3] + ly * normals[p * 3 + 1] + lz * normals[p * 3 + 2]) / lightMag;
+            int r = reflectance[p];
+            shades[p] = 0xFF000000 | shadeChannel(lightColor >> 16, ambientLight >> 16, r >> 16, cosOfVector) << 16
+                    | shadeChannel(lightColor >> 8, ambientLight >> 8, r >> 8, cosOfVector) << 8
+                    | shadeChannel(lightColor, ambientLight, r, cosOfVector);
+        }
+    }
+
+    /** Floats kept for each light by shadeAll(PackedScene, ...). */
+    private static final int LIGHT_TERMS = 7;
+
+    /**
+     * Lights the polygons [start, end) of a scene with every one of its lights
+     * in a single pass, writing each polygon's colour to shades[polygon]. Each
+     * light adds its own diffuse term, clamped as in shade(...), to the
+     * ambient term, so with one light the colours are exactly those of
+     * shadeAll(float[], int[], ...). The lights' directions, lengths and
+     * colours are put in one small table first, and then the normals and
+     * reflectances are walked in order with no further allocation.
+     */
+    public static void shadeAll(PackedScene scene, int start, int end, int ambientLight, int[] shades) {
+        float[] normals = scene.getNormals();
+        int[] reflectance = scene.getReflectance();
+        float[] table = lightTable(scene);
+        float ambientRed = (float) ((ambientLight >> 16) & 0xFF) / 255;
+        float ambientGreen = (float) ((ambientLight >> 8) & 0xFF) / 255;
+        float ambientBlue = (float) (ambientLight & 0xFF) / 255;
+        for (int p = start; p < end; p++) {
+            float nx = normals[p * 3], ny = normals[p * 3 + 1], nz = normals[p * 3 + 2];
+            float red = (reflectance[p] >> 16) & 0xFF, green = (reflectance[p] >> 8) & 0xFF, blue = reflectance[p] & 0xFF;
+            float r = Math.min(255, Math.max(0, ambientRed * red));
+            float g = Math.min(255, Math.max(0, ambientGreen * green));
+            float b = Math.min(255, Math.max(0, ambientBlue * blue));
+            for (int t = 0; t < table.length; t += LIGHT_TERMS) {
+                float cosOfVector = (table[t] * nx + table[t + 1] * ny + table[t + 2] * nz) / table[t + 3];
+                r += Math.min(255, Math.max(0, table[t + 4] * red * cosOfVector));
+                g += Math.min(255, Math.max(0, table[t + 5] * green * cosOfVector));
+                b += Math.min(255, Math.max(0, table[t + 6] * blue * cosOfVector));
+            }
+            shades[p] = 0xFF000000 | Math.min(255, Math.max(0, (int) r)) << 16
+                    | Math.min(255, Math.max(0, (int) g)) << 8 | Math.min(255, Math.max(0, (int) b));
+        }
+    }
+
+    /**
+     * The per light table used by shadeAll(PackedScene, ...) and
+     * lightVertices: each light's direction, length and colour (each channel
+     * out of 1), LIGHT_TERMS floats per light.
+     */
+    private static float[] lightTable(PackedScene scene) {
+        int lightCount = scene.getLightCount();
+        float[] lights = scene.getLights();
+        int[] lightColours = scene.getLightColours();
+        float[] table = new float[lightCount * LIGHT_TERMS];
+        for (int l = 0; l < lightCount; l++) {
+            float lx = lights[l * 3], ly = lights[l * 3 + 1], lz = lights[l * 3 + 2];
+            int t = l * LIGHT_TERMS;
+            table[t] = lx;
+            table[t + 1] = ly;
+            table[t + 2] = lz;
+            table[t + 3] = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+            table[t + 4] = (float) ((lightColours[l] >> 16) & 0xFF) / 255;
+            table[t + 5] = (float) ((lightColours[l] >> 8) & 0xFF) / 255;
+            table[t + 6] = (float) (lightColours[l] & 0xFF) / 255;
+        }
+        return table;
+    }
+
+    /**
+     * The lighting stage for Gouraud shading: lights every vertex of a scene,
+     * using its vertex normals, with all of its lights. The light reaching
+     * each vertex is written to light as 3 floats (red, green, blue), each out
+     * of 1 per light, with the ambient light included. It does not depend on
+     * the polygons' reflectances, so each shared vertex is only lit once;
+     * cornerColours() then gives the colours at a polygon's corners.
+     *
+     * @param light at least 3 floats per vertex.
+     */
+    public static void lightVertices(PackedScene scene, int ambientLight, float[] light) {
+        float[] normals = scene.getVertexNormals();
+        float[] table = lightTable(scene);
+        float ambientRed = (float) ((ambientLight >> 16) & 0xFF) / 255;
+        float ambientGreen = (float) ((ambientLight >> 8) & 0xFF) / 255;
+        float ambientBlue = (float) (ambientLight & 0xFF) / 255;
+        for (int v = 0; v < scene.getVertexCount() * 3; v += 3) {
+            float nx = normals[v], ny = normals[v + 1], nz = normals[v + 2];
+            float r = ambientRed, g = ambientGreen, b = ambientBlue;
+            for (int t = 0; t < table.length; t += LIGHT_TERMS) {
+                float cosOfVector = Math.max(0, (table[t] * nx + table[t + 1] * ny + table[t + 2] * nz) / table[t + 3]);
+                r += table[t + 4] * cosOfVector;
+                g += table[t + 5] * cosOfVector;
+                b += table[t + 6] * cosOfVector;
+            }
+            light[v] = r;
+            light[v + 1] = g;
+            light[v + 2] = b;
+        }
+    }
+
+    /**
+     * Writes the colours at the three corners of a polygon, lit as given by
+     * lightVertices(), to colours as 9 floats (red, green, blue for each
+     * corner in turn), each channel clamped to 255 as the flat shading is.
+     */
+    public static void cornerColours(PackedScene scene, float[] light, int polygon, float[] colours) {
+        int[] indices = scene.getIndices();
+        int reflectance = scene.getReflectance()[polygon];
+        float red = (reflectance >> 16) & 0xFF, green = (reflectance >> 8) & 0xFF, blue = reflectance & 0xFF;
         for (int i = 0; i < 3; i++) {
-            float ambientColor = ((float) ambientLightValues[i] / 255) * reflectanceValues[i];
-            ambientColor = Math.max(0, ambientColor);
-            ambientColor = Math.min(255, ambientColor);
-            float incidentColor = ((float) incidentValues[i] / 255) * reflectanceValues[i] * cosOfVector;
-            incidentColor = Math.max(0, incidentColor);
-            incidentColor = Math.min(255, incidentColor);
-            int light = (int) (ambientColor + incidentColor);
-            light = Math.max(0, light);
-            light = Math.min(255, light);
-            shade.add(light);
+            int v = indices[polygon * 3 + i] * 3;
+            colours[i * 3] = Math.min(255, red * light[v]);
+            colours[i * 3 + 1] = Math.min(255, green * light[v + 1]);
+            colours[i * 3 + 2] = Math.min(255, blue * light[v + 2]);
         }
-        return new Color(shade.get(0), shade.get(1), shade.get(2));
+    }
+
+    /** One colour channel of shade(); only the low 8 bits of each int are used. */
+    private static int shadeChannel(int incident, int ambient, int reflectance, float cosOfVector) {
+        float reflected = reflectance & 0xFF;
+        float ambientColor = Math.min(255, Math.max(0, (float) (ambient & 0xFF) / 255 * reflected));
+        float incidentColor = Math.min(255, Math.max(0, (float) (incident & 0xFF) / 255 * reflected * cosOfVector));
+        return Math.min(255, Math.max(0, (int) (ambientColor + incidentColor)));
     }
 
     /**
@@ -138,9 +327,9 @@ public class Pipeline {
      * @return
      */
     public static Scene scaleScene(Scene scene) {
-        Line sceneBounds = getSceneBounds(scene);
-        float sceneHeight = (float) (sceneBounds.getEndY()-sceneBounds.getStartY());
-        float sceneWidth = (float) (sceneBounds.getEndX()-sceneBounds.getStartX());
+        float[] sceneBounds = getSceneBounds(scene);
+        float sceneHeight = sceneBounds[3] - sceneBounds[1];
+        float sceneWidth = sceneBounds[2] - sceneBounds[0];
 
         float scale = 1;
         boolean useWidth = (sceneWidth > sceneHeight);
@@ -159,46 +348,235 @@ public class Pipeline {
         return new Scene(scaledPolygons, matrixScalar.multiply(scene.getLight()));
     }
 
+    /**
+     * Rotates a packed scene and its lights, in the same way as
+     * {@link #rotateScene(Scene, float, float)}. The original vertex array is
+     * left untouched.
+     */
+    public static PackedScene rotateScene(PackedScene scene, float xRot, float yRot) {
+        PackedScene rotated = scene;
+        float[] light = scene.getLights();
+        if (xRot != 0) {
+            Transform xRotation = Transform.newXRotation(xRot);
+            rotated = rotated.transform(xRotation);
+            light = transformPoints(xRotation, light);
+        }
+        if (yRot != 0) {
+            Transform yRotation = Transform.newYRotation(yRot);
+            rotated = rotated.transform(yRotation);
+            light = transformPoints(yRotation, light);
+        }
+        return rotated.withLight(light);
+    }
+
+    /**
+     * Applies a view rotation (for example the accumulated camera orientation)
+     * to every vertex of a packed scene and to its lights, in a single pass.
+     * The original scene is left untouched.
+     */
+    public static PackedScene rotateScene(PackedScene scene, Transform rotation) {
+        return scene.transform(rotation, rotation).withLight(transformPoints(rotation, scene.getLights()));
+    }
+
+    /**
+     * Rotates a packed scene by the view rotation and fits it to the canvas,
+     * transforming every vertex once. This does the same job as rotating and
+     * then calling translateScene, scaleScene and translateScene, but folds all
+     * four steps into one Transform. The bounds used for fitting come from
+     * rotating the model's cached bounding box, so no vertex has to be looked
+     * at before the transform.
+     */
+    public static PackedScene viewScene(PackedScene scene, Transform rotation) {
+        return viewScene(scene, rotation, GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+    }
+
+    /** As viewScene(scene, rotation), for a canvas of the given size. */
+    public static PackedScene viewScene(PackedScene scene, Transform rotation, int width, int height) {
+        return viewScene(scene, rotation, width, height, new float[scene.getVertexCount() * 3],
+                new float[scene.getPolygonCount() * 3]);
+    }
+
+    /**
+     * As viewScene(scene, rotation, width, height), but writing the screen
+     * space positions and normals into the given arrays (see
+     * PackedScene.transform(Transform, Transform, float[], float[])), so a
+     * caller can reuse them frame after frame.
+     */
+    public static PackedScene viewScene(PackedScene scene, Transform rotation, int width, int height,
+            float[] positions, float[] normals) {
+        Transform fit = fitToCanvas(getRotatedBounds(scene, rotation), width, height);
+        return scene.transform(fit.compose(rotation), rotation, positions, normals)
+                .withLight(transformPoints(rotation, scene.getLights()));
+    }
+
+    /**
+     * Returns the transform that moves and scales something with the given
+     * bounds, {minX, minY, maxX, maxY}, so that it sits in the canvas the way
+     * translateScene, scaleScene and translateScene would leave it: the larger
+     * side is 3/4 of the canvas, and the top left corner is an eighth of the
+     * canvas in from the top left.
+     */
+    public static Transform fitToCanvas(float[] bounds) {
+        return fitToCanvas(bounds, GUI.CANVAS_WIDTH, GUI.CANVAS_HEIGHT);
+    }
+
+    /**
+     * As fitToCanvas(bounds), for a canvas of the given size, which need not
+     * be square: the scene is scaled to fit 3/4 of whichever of the canvas'
+     * sides it would overflow first, and the margin on each axis is an eighth
+     * of the canvas along that axis.
+     */
+    public static Transform fitToCanvas(float[] bounds, int width, int height) {
+        float sceneWidth = bounds[2] - bounds[0];
+        float sceneHeight = bounds[3] - bounds[1];
+        float scale = Math.min(0.75f * width / sceneWidth, 0.75f * height / sceneHeight);
+        return Transform.newTranslation(width / 8f - scale * bounds[0], height / 8f - scale * bounds[1], 0)
+                .compose(Transform.newScale(scale, scale, scale));
+    }
+
+    /**
+     * Returns the screen-aligned bounds, {minX, minY, maxX, maxY}, of the
+     * scene's bounding box after it has been rotated. This may be a little
+     * larger than the rotated vertices themselves, but only needs the eight
+     * corners of the box rather than every vertex.
+     */
+    public static float[] getRotatedBounds(PackedScene scene, Transform rotation) {
+        float[] box = scene.getBounds();
+        float[] corners = new float[24];
+        for (int corner = 0; corner < 8; corner++) {
+            corners[corner * 3] = box[(corner & 1) * 3];
+            corners[corner * 3 + 1] = box[1 + ((corner >> 1) & 1) * 3];
+            corners[corner * 3 + 2] = box[2 + ((corner >> 2) & 1) * 3];
+        }
+        rotation.transformAll(corners, corners, 8);
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 24; i += 3) {
+            minX = Math.min(minX, corners[i]);
+            minY = Math.min(minY, corners[i + 1]);
+            maxX = Math.max(maxX, corners[i]);
+            maxY = Math.max(maxY, corners[i + 1]);
+        }
+        return new float[]{minX, minY, maxX, maxY};
+    }
+
+    private static float[] transformPoints(Transform transform, float[] points) {
+        if (points == null) {
+            return null;
+        }
+        float[] transformed = new float[points.length];
+        transform.transformAll(points, transformed, points.length / 3);
+        return transformed;
+    }
+
     /**
      * Computes the edgelist of a single provided polygon, as per the lecture
      * slides.
      */
     public static EdgeList computeEdgeList(Polygon poly) {
-        Vector3D[] polygonVerticies = {poly.getVertices()[0], poly.getVertices()[1], poly.getVertices()[2]};
-        float minY = Float.MAX_VALUE;
-        float maxY = -Float.MAX_VALUE;
-        for(int i = 0;i<3;i++){
-            if(polygonVerticies[i].y>maxY){
-                maxY = poly.getVertices()[i].y;
-            }
-            if(polygonVerticies[i].y<minY){
-                minY = poly.getVertices()[i].y;
-            }
+        float[] points = new float[PackedScene.FLOATS_PER_POLYGON];
+        for (int i = 0; i < 3; i++) {
+            points[i * 3] = poly.getVertices()[i].x;
+            points[i * 3 + 1] = poly.getVertices()[i].y;
+            points[i * 3 + 2] = poly.getVertices()[i].z;
+        }
+        return computeEdgeList(points, SINGLE_TRIANGLE, 0);
+    }
+
+    /**
+     * Computes the edgelist of the given polygon of an indexed vertex buffer.
+     */
+    public static EdgeList computeEdgeList(float[] positions, int[] indices, int polygon) {
+        return computeEdgeList(positions, indices, polygon, new EdgeList(0, 0));
+    }
+
+    /**
+     * As computeEdgeList(positions, indices, polygon), but filling the given
+     * EdgeList (e.g. EdgeList.scratch()) instead of allocating a new one.
+     */
+    public static EdgeList computeEdgeList(float[] positions, int[] indices, int polygon, EdgeList edges) {
+        return computeEdgeList(positions, indices, polygon, edges,
+                Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * As computeEdgeList(positions, indices, polygon, edges), but only keeping
+     * the rows that can be drawn in the rectangle minX <= x < maxX, minY <= y
+     * < maxY. A polygon wholly outside the rectangle gets an empty edge list
+     * straight away. Each row's values are worked out from the edge's first
+     * vertex and the row's distance from it, so the walk starts straight at
+     * the first row kept, however far off the rectangle the vertex is, and
+     * the rows kept have exactly the values they would otherwise.
+     */
+    public static EdgeList computeEdgeList(float[] positions, int[] indices, int polygon, EdgeList edges,
+            int minX, int minY, int maxX, int maxY) {
+        return computeEdgeList(positions, indices, polygon, null, edges, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * As computeEdgeList(positions, indices, polygon, edges, minX, minY,
+     * maxX, maxY), but also stepping a colour down each edge, as it does z,
+     * for Gouraud shading. The colours at the polygon's corners are given as
+     * by cornerColours(); if colours is null none are kept.
+     */
+    public static EdgeList computeEdgeList(float[] positions, int[] indices, int polygon, float[] colours,
+            EdgeList edges, int minX, int minY, int maxX, int maxY) {
+        float polyMinX = Float.MAX_VALUE;
+        float polyMaxX = -Float.MAX_VALUE;
+        float polyMinY = Float.MAX_VALUE;
+        float polyMaxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            int v = indices[polygon * 3 + i] * 3;
+            polyMinX = Math.min(polyMinX, positions[v]);
+            polyMaxX = Math.max(polyMaxX, positions[v]);
+            polyMinY = Math.min(polyMinY, positions[v + 1]);
+            polyMaxY = Math.max(polyMaxY, positions[v + 1]);
         }
-        EdgeList newEdgeList = new EdgeList(minY, maxY);
-        for (int i = 0; i < polygonVerticies.length ; i ++) {
-            Vector3D a = polygonVerticies[i];
-            Vector3D b = polygonVerticies[(i+1)%3];
-            float xSlope = (b.x - a.x) / ((int)b.y - (int)a.y);
-            float zSlope = (b.z - a.z) / ((int)b.y - (int)a.y);
-            float x = a.x;
-            int y = (int)a.y;
-            float z = a.z;
-            if (a.y < b.y) {
-                while (y <= (int)b.y) {
-                    newEdgeList.setLeftX(y, x);
-                    newEdgeList.setLeftZ(y, z);
-                    z += zSlope;
-                    x += xSlope;
-                    y++;
+        int firstRow = Math.max((int)polyMinY, minY);
+        int lastRow = Math.min((int)polyMaxY, maxY);
+        // rows up to but not including endY are drawn; the pixel margin on x
+        // allows for rounding in the edge walk.
+        if (firstRow >= lastRow || polyMaxX < minX - 1f || polyMinX >= maxX + 1f) {
+            return edges.reset(firstRow, firstRow);
+        }
+        EdgeList newEdgeList = edges.reset(firstRow, lastRow);
+        for (int i = 0; i < 3; i++) {
+            int a = indices[polygon * 3 + i] * 3;
+            int b = indices[polygon * 3 + (i + 1) % 3] * 3;
+            float ax = positions[a], ay = positions[a + 1], az = positions[a + 2];
+            float bx = positions[b], by = positions[b + 1], bz = positions[b + 2];
+            // an edge within one row is only set at its first vertex.
+            int rows = (int)by - (int)ay;
+            float xSlope = rows == 0 ? 0 : (bx - ax) / rows;
+            float zSlope = rows == 0 ? 0 : (bz - az) / rows;
+            // the corners' colours, if any, are stepped in the same way.
+            int ca = i * 3, cb = (i + 1) % 3 * 3;
+            float rSlope = 0, gSlope = 0, bSlope = 0;
+            if (colours != null && rows != 0) {
+                rSlope = (colours[cb] - colours[ca]) / rows;
+                gSlope = (colours[cb + 1] - colours[ca + 1]) / rows;
+                bSlope = (colours[cb + 2] - colours[ca + 2]) / rows;
+            }
+            // only the rows that can be kept are walked.
+            if (ay < by) {
+                for (int y = Math.max((int)ay, firstRow); y <= Math.min((int)by, lastRow); y++) {
+                    float k = (float)y - (int)ay;
+                    newEdgeList.setLeftX(y, ax + xSlope * k);
+                    newEdgeList.setLeftZ(y, az + zSlope * k);
+                    if (colours != null) {
+                        newEdgeList.setLeftColour(y, colours[ca] + rSlope * k, colours[ca + 1] + gSlope * k,
+                                colours[ca + 2] + bSlope * k);
+                    }
                 }
             } else {
-                while (y >= (int)b.y) {
-                    newEdgeList.setRightX(y, x);
-                    newEdgeList.setRightZ(y, z);
-                    z -= zSlope;
-                    x -= xSlope;
-                    y--;
+                for (int y = Math.min((int)ay, lastRow); y >= Math.max((int)by, firstRow); y--) {
+                    float k = (int)ay - (float)y;
+                    newEdgeList.setRightX(y, ax - xSlope * k);
+                    newEdgeList.setRightZ(y, az - zSlope * k);
+                    if (colours != null) {
+                        newEdgeList.setRightColour(y, colours[ca] - rSlope * k, colours[ca + 1] - gSlope * k,
+                                colours[ca + 2] - bSlope * k);
+                    }
                 }
             }
         }
@@ -220,27 +598,318 @@ public class Pipeline {
      * @param polyColor    The colour of the polygon to add into the zbuffer.
      */
     public static void computeZBuffer(Color[][] zbuffer, float[][] zdepth, EdgeList polyEdgeList, Color polyColor) {
-        for (int y = polyEdgeList.getStartY(); y < polyEdgeList.getEndY(); y++) {
+        // clip the rows and spans to the buffers up front, so the span loop
+        // only has the depth test in it.
+        int width = zbuffer.length;
+        int height = zbuffer.length == 0 ? 0 : zbuffer[0].length;
+        int endY = Math.min(polyEdgeList.getEndY(), height);
+        for (int y = Math.max(polyEdgeList.getStartY(), 0); y < endY; y++) {
             float slope = (polyEdgeList.getRightZ(y) - polyEdgeList.getLeftZ(y)) / (polyEdgeList.getRightX(y) - polyEdgeList.getLeftX(y));
-            int x = (int)polyEdgeList.getLeftX(y);
-            float z = polyEdgeList.getLeftZ(y);
-            while (x <= (int)polyEdgeList.getRightX(y) - 1) {
-                if ((y>=0&&x>=0&&y<GUI.CANVAS_HEIGHT&&x<GUI.CANVAS_WIDTH)&&z < zdepth[x][y]) {
+            int startX = (int)polyEdgeList.getLeftX(y);
+            float leftZ = polyEdgeList.getLeftZ(y);
+            int x = Math.max(startX, 0);
+            int endX = Math.min((int)polyEdgeList.getRightX(y) - 1, width - 1);
+            // each z is worked out from the left end, so the off-screen part
+            // of the span is skipped in one go.
+            for (float k = (float)x - startX; x <= endX; x++, k++) {
+                float z = leftZ + slope * k;
+                if (z < zdepth[x][y]) {
                     zbuffer[x][y] = polyColor;
                     zdepth[x][y] = z;
                 }
-                z = z + slope;
-                x++;
             }
         }
     }
 
     /**
-     * Returns a rectangle that represents the bounds of the scene
+     * As computeZBuffer(Color[][], float[][], EdgeList, Color), but drawing a
+     * packed RGB colour into a FrameBuffer.
+     */
+    public static void computeZBuffer(FrameBuffer frame, EdgeList polyEdgeList, int polyColor) {
+        computeZBuffer(frame, polyEdgeList, polyColor, 0, 0, frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * As computeZBuffer(FrameBuffer, EdgeList, int), but only drawing the
+     * pixels with minX <= x < maxX and minY <= y < maxY, which must lie inside
+     * the frame. Each pixel's depth is worked out from the left end of its
+     * span, so the clipped part is skipped in one go and the pixels drawn get
+     * exactly the depths they would without the clipping. With
+     * occlusion culling on, spans of at least SPAN_CULL_MIN pixels that the
+     * frame's coarse depth shows are hidden are skipped.
+     */
+    public static void computeZBuffer(FrameBuffer frame, EdgeList polyEdgeList, int polyColor,
+            int minX, int minY, int maxX, int maxY) {
+        fillSpans(frame, polyEdgeList, polyColor, false, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * The Gouraud version of computeZBuffer(FrameBuffer, EdgeList, int, ...):
+     * draws an edge list made with colours, stepping the colour across each
+     * span as well as z, so every pixel is a blend of the colours at the
+     * polygon's corners. Each pixel costs a few multiply-adds, with no
+     * lighting done per pixel. The spans are clipped and culled just as the
+     * flat version's are, and get the same depths.
+     */
+    public static void computeShadedZBuffer(FrameBuffer frame, EdgeList polyEdgeList, int minX, int minY, int maxX,
+            int maxY) {
+        fillSpans(frame, polyEdgeList, 0, true, minX, minY, maxX, maxY);
+    }
+
+    /*
+     * draws each span of the edge list within the rectangle, in polyColor,
+     * or blending the edge list's colours if shaded. Only the pixel loop
+     * differs between the two.
+     */
+    private static void fillSpans(FrameBuffer frame, EdgeList polyEdgeList, int polyColor, boolean shaded,
+            int minX, int minY, int maxX, int maxY) {
+        int width = frame.getWidth();
+        int[] pixels = frame.getPixels();
+        float[] depth = frame.getDepth();
+        boolean cull = frame.isOcclusionCulling();
+        int endY = Math.min(polyEdgeList.getEndY(), maxY);
+        for (int y = Math.max(polyEdgeList.getStartY(), minY); y < endY; y++) {
+            float span = polyEdgeList.getRightX(y) - polyEdgeList.getLeftX(y);
+            float slope = (polyEdgeList.getRightZ(y) - polyEdgeList.getLeftZ(y)) / span;
+            int startX = (int)polyEdgeList.getLeftX(y);
+            float leftZ = polyEdgeList.getLeftZ(y);
+            int x = Math.max(startX, minX);
+            int endX = Math.min((int)polyEdgeList.getRightX(y) - 1, maxX - 1);
+            if (cull && endX - x + 1 >= SPAN_CULL_MIN
+                    && frame.isSpanOccluded(Math.min(polyEdgeList.getLeftZ(y), polyEdgeList.getRightZ(y)), x, endX + 1, y)) {
+                frame.countCulledSpan(endX - x + 1);
+                continue;
+            }
+            if (!shaded) {
+                for (float k = (float)x - startX; x <= endX; x++, k++) {
+                    float z = leftZ + slope * k;
+                    if (z < depth[y * width + x]) {
+                        pixels[y * width + x] = polyColor;
+                        depth[y * width + x] = z;
+                    }
+                }
+                continue;
+            }
+            float red = polyEdgeList.getLeftColour(y, 0);
+            float green = polyEdgeList.getLeftColour(y, 1);
+            float blue = polyEdgeList.getLeftColour(y, 2);
+            float rSlope = (polyEdgeList.getRightColour(y, 0) - red) / span;
+            float gSlope = (polyEdgeList.getRightColour(y, 1) - green) / span;
+            float bSlope = (polyEdgeList.getRightColour(y, 2) - blue) / span;
+            for (float k = (float)x - startX; x <= endX; x++, k++) {
+                float z = leftZ + slope * k;
+                if (z < depth[y * width + x]) {
+                    pixels[y * width + x] = 0xFF000000 | Math.min(255, Math.max(0, (int)(red + rSlope * k))) << 16
+                            | Math.min(255, Math.max(0, (int)(green + gSlope * k))) << 8
+                            | Math.min(255, Math.max(0, (int)(blue + bSlope * k)));
+                    depth[y * width + x] = z;
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the given polygon of a screen space vertex buffer into the frame
+     * without an edge list, by testing pixels against the triangle's three
+     * edge functions. See rasterizeHalfSpace(..., minX, minY, maxX, maxY).
+     */
+    public static void rasterizeHalfSpace(FrameBuffer frame, float[] positions, int[] indices, int polygon, int polyColor) {
+        rasterizeHalfSpace(frame, positions, indices, polygon, polyColor, 0, 0, frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * Draws the given polygon of a screen space vertex buffer into the pixels
+     * with minX <= x < maxX and minY <= y < maxY of the frame.
+     * <p>
+     * A pixel is inside when its centre is on the inner side of (or on) all
+     * three edges, where an edge function is 0 along its edge and changes by a
+     * constant amount per pixel across and down. The triangle's bounding box
+     * is walked in BLOCK x BLOCK blocks: a block that lies wholly outside one
+     * edge is skipped, and one wholly inside all three is filled without any
+     * edge tests. Depth is the triangle's plane equation, z = z0 + dzdx * x +
+     * dzdy * y.
+     */
+    public static void rasterizeHalfSpace(FrameBuffer frame, float[] positions, int[] indices, int polygon, int polyColor,
+            int minX, int minY, int maxX, int maxY) {
+        int a = indices[polygon * 3] * 3;
+        int b = indices[polygon * 3 + 1] * 3;
+        int c = indices[polygon * 3 + 2] * 3;
+        float x0 = positions[a], y0 = positions[a + 1], z0 = positions[a + 2];
+        float x1 = positions[b], y1 = positions[b + 1], z1 = positions[b + 2];
+        float x2 = positions[c], y2 = positions[c + 1], z2 = positions[c + 2];
+        float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+        if (area == 0) {
+            return;
+        }
+        // wind the edges so the inside of each is positive.
+        float sign = area > 0 ? 1 : -1;
+        float[] edges = {
+                sign * (y0 - y1), sign * (x1 - x0), sign * (x0 * y1 - x1 * y0),
+                sign * (y1 - y2), sign * (x2 - x1), sign * (x1 * y2 - x2 * y1),
+                sign * (y2 - y0), sign * (x0 - x2), sign * (x2 * y0 - x0 * y2) };
+        float dzdx = ((z1 - z0) * (y2 - y0) - (z2 - z0) * (y1 - y0)) / area;
+        float dzdy = ((z2 - z0) * (x1 - x0) - (z1 - z0) * (x2 - x0)) / area;
+        float zc = z0 - dzdx * x0 - dzdy * y0;
+
+        int startX = Math.max(minX, (int)Math.floor(Math.min(x0, Math.min(x1, x2))));
+        int startY = Math.max(minY, (int)Math.floor(Math.min(y0, Math.min(y1, y2))));
+        int endX = Math.min(maxX, (int)Math.ceil(Math.max(x0, Math.max(x1, x2))) + 1);
+        int endY = Math.min(maxY, (int)Math.ceil(Math.max(y0, Math.max(y1, y2))) + 1);
+        int width = frame.getWidth();
+        int[] pixels = frame.getPixels();
+        float[] depth = frame.getDepth();
+
+        // blocks are aligned to multiples of BLOCK, so each pixel is reached
+        // by the same steps whatever rectangle is drawn.
+        for (int blockY = Math.floorDiv(startY, BLOCK) * BLOCK; blockY < endY; blockY += BLOCK) {
+            int blockEndY = Math.min(blockY + BLOCK, endY);
+            for (int blockX = Math.floorDiv(startX, BLOCK) * BLOCK; blockX < endX; blockX += BLOCK) {
+                int blockEndX = Math.min(blockX + BLOCK, endX);
+                // test the centres of the block's corner pixels against each edge.
+                float left = blockX + 0.5f, right = blockEndX - 0.5f;
+                float top = blockY + 0.5f, bottom = blockEndY - 0.5f;
+                boolean outside = false, inside = true;
+                for (int e = 0; e < 9 && !outside; e += 3) {
+                    int corners = 0;
+                    corners += edges[e] * left + edges[e + 1] * top + edges[e + 2] >= 0 ? 1 : 0;
+                    corners += edges[e] * right + edges[e + 1] * top + edges[e + 2] >= 0 ? 1 : 0;
+                    corners += edges[e] * left + edges[e + 1] * bottom + edges[e + 2] >= 0 ? 1 : 0;
+                    corners += edges[e] * right + edges[e + 1] * bottom + edges[e + 2] >= 0 ? 1 : 0;
+                    outside = corners == 0;
+                    inside &= corners == 4;
+                }
+                if (outside) {
+                    continue;
+                }
+                for (int y = Math.max(blockY, startY); y < blockEndY; y++) {
+                    float py = y + 0.5f;
+                    float px = blockX + 0.5f;
+                    float e0 = edges[0] * px + edges[1] * py + edges[2];
+                    float e1 = edges[3] * px + edges[4] * py + edges[5];
+                    float e2 = edges[6] * px + edges[7] * py + edges[8];
+                    float z = zc + dzdx * px + dzdy * py;
+                    int row = y * width;
+                    for (int x = blockX; x < blockEndX; x++) {
+                        if (x >= startX && (inside || (e0 >= 0 && e1 >= 0 && e2 >= 0)) && z < depth[row + x]) {
+                            pixels[row + x] = polyColor;
+                            depth[row + x] = z;
+                        }
+                        e0 += edges[0];
+                        e1 += edges[3];
+                        e2 += edges[6];
+                        z += dzdx;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the given polygon of a screen space vertex buffer into the frame
+     * using fixed point coordinates. See rasterizeFixedPoint(..., minX, minY,
+     * maxX, maxY).
+     */
+    public static void rasterizeFixedPoint(FrameBuffer frame, float[] positions, int[] indices, int polygon, int polyColor) {
+        rasterizeFixedPoint(frame, positions, indices, polygon, polyColor, 0, 0, frame.getWidth(), frame.getHeight());
+    }
+
+    /**
+     * Draws the given polygon of a screen space vertex buffer into the pixels
+     * with minX <= x < maxX and minY <= y < maxY of the frame.
+     * <p>
+     * The vertices are snapped to 28.4 fixed point (SUBPIXELS steps per
+     * pixel) and the edge functions are stepped across each row with integer
+     * adds, so whether a pixel centre is inside never depends on rounding.
+     * Centres exactly on an edge only count for top and left edges, so two
+     * triangles sharing an edge never both draw a pixel along it and never
+     * leave a gap. Depth comes from the plane equation at each pixel centre,
+     * so the result does not depend on the rectangle drawn either.
+     */
+    public static void rasterizeFixedPoint(FrameBuffer frame, float[] positions, int[] indices, int polygon, int polyColor,
+            int minX, int minY, int maxX, int maxY) {
+        int a = indices[polygon * 3] * 3;
+        int b = indices[polygon * 3 + 1] * 3;
+        int c = indices[polygon * 3 + 2] * 3;
+        long x0 = Math.round(positions[a] * SUBPIXELS), y0 = Math.round(positions[a + 1] * SUBPIXELS);
+        long x1 = Math.round(positions[b] * SUBPIXELS), y1 = Math.round(positions[b + 1] * SUBPIXELS);
+        long x2 = Math.round(positions[c] * SUBPIXELS), y2 = Math.round(positions[c + 1] * SUBPIXELS);
+        float z0 = positions[a + 2], z1 = positions[b + 2], z2 = positions[c + 2];
+        long area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+        if (area == 0) {
+            return;
+        }
+        if (area < 0) {
+            // swap the last two corners so every triangle winds the same way.
+            long t = x1; x1 = x2; x2 = t;
+            t = y1; y1 = y2; y2 = t;
+            float tz = z1; z1 = z2; z2 = tz;
+            area = -area;
+        }
+        float dzdx = ((z1 - z0) * (y2 - y0) - (z2 - z0) * (y1 - y0)) / (float)area * SUBPIXELS;
+        float dzdy = ((z2 - z0) * (x1 - x0) - (z1 - z0) * (x2 - x0)) / (float)area * SUBPIXELS;
+        float zc = z0 - dzdx * (x0 / (float)SUBPIXELS) - dzdy * (y0 / (float)SUBPIXELS);
+
+        int startX = Math.max(minX, (int)Math.floorDiv(Math.min(x0, Math.min(x1, x2)), SUBPIXELS));
+        int startY = Math.max(minY, (int)Math.floorDiv(Math.min(y0, Math.min(y1, y2)), SUBPIXELS));
+        int endX = (int)Math.min(maxX, Math.floorDiv(Math.max(x0, Math.max(x1, x2)), SUBPIXELS) + 1);
+        int endY = (int)Math.min(maxY, Math.floorDiv(Math.max(y0, Math.max(y1, y2)), SUBPIXELS) + 1);
+        if (startX >= endX || startY >= endY) {
+            return;
+        }
+
+        // each edge function is dx * (py - ay) - dy * (px - ax); it goes up by
+        // -dy * SUBPIXELS for each pixel right and dx * SUBPIXELS for each down.
+        long[] dx = { x1 - x0, x2 - x1, x0 - x2 };
+        long[] dy = { y1 - y0, y2 - y1, y0 - y2 };
+        long[] ax = { x0, x1, x2 };
+        long[] ay = { y0, y1, y2 };
+        long[] rowStart = new long[3];
+        long px0 = (long)startX * SUBPIXELS + SUBPIXELS / 2;
+        long py0 = (long)startY * SUBPIXELS + SUBPIXELS / 2;
+        for (int e = 0; e < 3; e++) {
+            // with this winding, a top edge runs in +x and a left edge in -y;
+            // any other edge must be strictly positive, i.e. at least 1.
+            boolean topLeft = (dy[e] == 0 && dx[e] > 0) || dy[e] < 0;
+            rowStart[e] = dx[e] * (py0 - ay[e]) - dy[e] * (px0 - ax[e]) - (topLeft ? 0 : 1);
+        }
+        long stepX0 = -dy[0] * SUBPIXELS, stepX1 = -dy[1] * SUBPIXELS, stepX2 = -dy[2] * SUBPIXELS;
+
+        int width = frame.getWidth();
+        int[] pixels = frame.getPixels();
+        float[] depth = frame.getDepth();
+        for (int y = startY; y < endY; y++) {
+            long e0 = rowStart[0], e1 = rowStart[1], e2 = rowStart[2];
+            float py = y + 0.5f;
+            int row = y * width;
+            boolean entered = false;
+            for (int x = startX; x < endX; x++) {
+                if ((e0 | e1 | e2) >= 0) {
+                    entered = true;
+                    float z = zc + dzdx * (x + 0.5f) + dzdy * py;
+                    if (z < depth[row + x]) {
+                        pixels[row + x] = polyColor;
+                        depth[row + x] = z;
+                    }
+                } else if (entered) {
+                    // a triangle's row is one unbroken span.
+                    break;
+                }
+                e0 += stepX0;
+                e1 += stepX1;
+                e2 += stepX2;
+            }
+            rowStart[0] += dx[0] * SUBPIXELS;
+            rowStart[1] += dx[1] * SUBPIXELS;
+            rowStart[2] += dx[2] * SUBPIXELS;
+        }
+    }
+
+    /**
+     * Returns the bounds of the scene as {minX, minY, maxX, maxY}
      * @param scene The scene to get the bounds of
      * @return
      */
-    public static Line getSceneBounds(Scene scene){
+    public static float[] getSceneBounds(Scene scene){
         float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
         float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
         for (Polygon p : scene.getPolygons()) {
@@ -251,7 +920,15 @@ public class Pipeline {
                 maxY = Math.max(maxY, v.y);
             }
         }
-        return new Line(minX,minY,maxX,maxY);
+        return new float[]{minX, minY, maxX, maxY};
+    }
+
+    /**
+     * Returns the bounds of a packed scene as {minX, minY, maxX, maxY}.
+     */
+    public static float[] getSceneBounds(PackedScene scene) {
+        float[] bounds = scene.getBounds();
+        return new float[]{bounds[0], bounds[1], bounds[3], bounds[4]};
     }
 
     /**
@@ -268,7 +945,17 @@ public class Pipeline {
         return tempVector1.crossProduct(tempVector2).unitVector();
     }
 
-
+    /**
+     * Calculates the unit normal of the given polygon of an indexed vertex
+     * buffer.
+     */
+    public static Vector3D calculateNormal(float[] positions, int[] indices, int polygon) {
+        int a = indices[polygon * 3] * 3, b = indices[polygon * 3 + 1] * 3, c = indices[polygon * 3 + 2] * 3;
+        Vector3D v1 = new Vector3D(positions[a], positions[a + 1], positions[a + 2]);
+        Vector3D v2 = new Vector3D(positions[b], positions[b + 1], positions[b + 2]);
+        Vector3D v3 = new Vector3D(positions[c], positions[c + 1], positions[c + 2]);
+        return v2.minus(v1).crossProduct(v3.minus(v2)).unitVector();
+    }
 }
 
 // code for comp261 assignments
@@ -0,0 +1,110 @@
+package renderer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Vertex positions stored as 16-bit fixed point, relative to the bounding box
+ * of the vertices. Each axis of the box is split into 65535 equal steps, and a
+ * coordinate is stored as the number of the nearest step, so a vertex takes 6
+ * bytes instead of 12. The largest error on an axis is about half a step, i.e.
+ * (max - min) / 131070.
+ * <p>
+ * A stored coordinate q always turns back into the float
+ * <code>origin + q * step</code>, worked out in exactly that order, so every
+ * caller sees the same dequantized position.
+ */
+public class QuantizedPositions {
+	private static final int LEVELS = 65535;
+
+	private final short[] data;
+	private final int vertexCount;
+	private final float[] origin;
+	private final float[] step;
+
+	private QuantizedPositions(short[] data, int vertexCount, float[] origin, float[] step) {
+		this.data = data;
+		this.vertexCount = vertexCount;
+		this.origin = origin;
+		this.step = step;
+	}
+
+	/**
+	 * Quantizes the first vertexCount xyz positions.
+	 *
+	 * @param bounds
+	 *            the bounds of the positions, as {minX, minY, minZ, maxX, maxY,
+	 *            maxZ}.
+	 */
+	public static QuantizedPositions quantize(float[] positions, int vertexCount, float[] bounds) {
+		float[] origin = { bounds[0], bounds[1], bounds[2] };
+		float[] step = new float[3];
+		for (int axis = 0; axis < 3; axis++)
+			step[axis] = (bounds[axis + 3] - bounds[axis]) / LEVELS;
+		short[] data = new short[vertexCount * 3];
+		for (int i = 0; i < vertexCount * 3; i++) {
+			int axis = i % 3;
+			int q = 0;
+			if (step[axis] > 0)
+				q = (int) Math.round((positions[i] - (double) origin[axis]) / step[axis]);
+			data[i] = (short) Math.max(0, Math.min(LEVELS, q));
+		}
+		return new QuantizedPositions(data, vertexCount, origin, step);
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/** Returns the dequantized value of coordinate i (vertex i / 3, axis i % 3). */
+	public float get(int i) {
+		int axis = i % 3;
+		return origin[axis] + (data[i] & 0xFFFF) * step[axis];
+	}
+
+	/** Dequantizes every position into a new array. */
+	public float[] dequantize() {
+		float[] positions = new float[vertexCount * 3];
+		for (int i = 0; i < positions.length; i += 3) {
+			positions[i] = origin[0] + (data[i] & 0xFFFF) * step[0];
+			positions[i + 1] = origin[1] + (data[i + 1] & 0xFFFF) * step[1];
+			positions[i + 2] = origin[2] + (data[i + 2] & 0xFFFF) * step[2];
+		}
+		return positions;
+	}
+
+	/** Returns the number of bytes used by the stored coordinates. */
+	public long getSizeInBytes() {
+		return data.length * 2L;
+	}
+
+	/**
+	 * Returns the largest distance on any axis between an original position
+	 * and its dequantized value.
+	 */
+	public float maxError(float[] positions) {
+		float max = 0;
+		for (int i = 0; i < vertexCount * 3; i++)
+			max = Math.max(max, Math.abs(get(i) - positions[i]));
+		return max;
+	}
+
+	/**
+	 * Prints the memory saved and the largest positional error of compact
+	 * storage for each scene file given.
+	 */
+	public static void main(String[] args) throws IOException {
+		System.out.printf("%-14s %10s %10s %10s %8s %12s%n", "model", "vertices", "float B", "compact B", "saved",
+				"max error");
+		for (String arg : args) {
+			PackedScene scene = SceneLoader.load(new File(arg));
+			QuantizedPositions q = quantize(scene.getPositions(), scene.getVertexCount(), scene.getBounds());
+			long full = scene.getVertexCount() * 12L;
+			System.out.printf("%-14s %10d %10d %10d %7.1f%% %12.6g%n", new File(arg).getName(), scene.getVertexCount(),
+					full, q.getSizeInBytes(), 100.0 * (full - q.getSizeInBytes()) / Math.max(1, full),
+					q.maxError(scene.getPositions()));
+		}
+	}
+}
+
+// code for comp261 assignments
@@ -0,0 +1,160 @@
+package renderer;
+
+/**
+ * The ways the renderer can turn a screen space triangle into pixels of a
+ * FrameBuffer. Each draws the pixels of one polygon that fall inside a
+ * rectangle, so the same engine can draw a whole frame or one tile of it.
+ * <p>
+ * When the frame has occlusion culling on, draw() first skips triangles that
+ * the frame's coarse depth pyramid shows are hidden, and afterwards lowers
+ * the coarse depth of the blocks the triangle covered completely and marks
+ * the rest of the blocks it drew on as touched.
+ */
+public enum RasterEngine {
+    /** computeEdgeList then computeZBuffer, as in the lecture slides. */
+    EDGE_LIST {
+        @Override
+        void rasterize(FrameBuffer frame, float[] positions, int[] indices, int polygon, int colour,
+                int minX, int minY, int maxX, int maxY) {
+            EdgeList edges = Pipeline.computeEdgeList(positions, indices, polygon, EdgeList.scratch(),
+                    minX, minY, maxX, maxY);
+            Pipeline.computeZBuffer(frame, edges, colour, minX, minY, maxX, maxY);
+        }
+    },
+    /** Pipeline.rasterizeHalfSpace: edge functions over 8x8 blocks. */
+    HALF_SPACE {
+        @Override
+        void rasterize(FrameBuffer frame, float[] positions, int[] indices, int polygon, int colour,
+                int minX, int minY, int maxX, int maxY) {
+            Pipeline.rasterizeHalfSpace(frame, positions, indices, polygon, colour, minX, minY, maxX, maxY);
+        }
+    },
+    /** Pipeline.rasterizeFixedPoint: 28.4 fixed point with a top-left rule. */
+    FIXED_POINT {
+        @Override
+        void rasterize(FrameBuffer frame, float[] positions, int[] indices, int polygon, int colour,
+                int minX, int minY, int maxX, int maxY) {
+            Pipeline.rasterizeFixedPoint(frame, positions, indices, polygon, colour, minX, minY, maxX, maxY);
+        }
+    };
+
+    /**
+     * Draws the pixels of the polygon with minX <= x < maxX and minY <= y <
+     * maxY, which must be inside the frame.
+     */
+    public void draw(FrameBuffer frame, float[] positions, int[] indices, int polygon, int colour,
+            int minX, int minY, int maxX, int maxY) {
+        if (!frame.isOcclusionCulling()) {
+            rasterize(frame, positions, indices, polygon, colour, minX, minY, maxX, maxY);
+            return;
+        }
+        float polyMinX = Float.MAX_VALUE, polyMinY = Float.MAX_VALUE, nearestZ = Float.MAX_VALUE;
+        float polyMaxX = -Float.MAX_VALUE, polyMaxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            int v = indices[polygon * 3 + i] * 3;
+            polyMinX = Math.min(polyMinX, positions[v]);
+            polyMaxX = Math.max(polyMaxX, positions[v]);
+            polyMinY = Math.min(polyMinY, positions[v + 1]);
+            polyMaxY = Math.max(polyMaxY, positions[v + 1]);
+            nearestZ = Math.min(nearestZ, positions[v + 2]);
+        }
+        // the pixels the triangle could reach, with a pixel of slack.
+        int x0 = Math.max(minX, (int)Math.floor(polyMinX) - 1);
+        int y0 = Math.max(minY, (int)Math.floor(polyMinY) - 1);
+        int x1 = (int)Math.min(maxX, Math.floor(polyMaxX) + 2);
+        int y1 = (int)Math.min(maxY, Math.floor(polyMaxY) + 2);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        if (frame.isOccluded(nearestZ, x0, y0, x1, y1)) {
+            frame.countCulledTriangle();
+            return;
+        }
+        rasterize(frame, positions, indices, polygon, colour, x0, y0, x1, y1);
+        coverBlocks(frame, positions, indices, polygon, x0, y0, x1, y1);
+    }
+
+    /** How far inside the triangle, in pixels, a block must be to count as covered. */
+    private static final float COVER_MARGIN = 3;
+
+    /*
+     * brings the coarse depth of each block the rectangle overlaps up to
+     * date after drawing the triangle in it. A block that lies wholly inside
+     * the rectangle and the triangle, with COVER_MARGIN to spare for the
+     * rasterizers' rounding, is lowered to the triangle's farthest depth. Any
+     * other block is only marked as touched.
+     * <p>
+     * The triangle is convex, so a block is inside it if the block grown by
+     * the margin is inside all three edges, and for each edge only the
+     * block's corner nearest the edge needs testing. The edge functions are
+     * worked out once, so a block costs three multiply-adds.
+     */
+    private static void coverBlocks(FrameBuffer frame, float[] positions, int[] indices, int polygon,
+            int minX, int minY, int maxX, int maxY) {
+        int a = indices[polygon * 3] * 3, b = indices[polygon * 3 + 1] * 3, c = indices[polygon * 3 + 2] * 3;
+        float ax = positions[a], ay = positions[a + 1];
+        float bx = positions[b], by = positions[b + 1];
+        float cx = positions[c], cy = positions[c + 1];
+        float farZ = Math.max(positions[a + 2], Math.max(positions[b + 2], positions[c + 2]));
+        farZ += 1e-4f * Math.max(1, Math.abs(farZ));
+        float sign = Math.signum((bx - ax) * (cy - ay) - (cx - ax) * (by - ay));
+        // each edge's function, positive inside, is ex * x + ey * y + e.
+        float abx = sign * (ay - by), aby = sign * (bx - ax), ab = -abx * ax - aby * ay;
+        float bcx = sign * (by - cy), bcy = sign * (cx - bx), bc = -bcx * bx - bcy * by;
+        float cax = sign * (cy - ay), cay = sign * (ax - cx), ca = -cax * cx - cay * cy;
+        boolean canCover = sign != 0 && !Float.isNaN(farZ);
+        int blockX0 = minX / FrameBuffer.COARSE, blockX1 = (maxX - 1) / FrameBuffer.COARSE;
+        for (int blockY = minY / FrameBuffer.COARSE; blockY <= (maxY - 1) / FrameBuffer.COARSE; blockY++) {
+            int top = blockY * FrameBuffer.COARSE;
+            if (!canCover || top < minY || top + FrameBuffer.COARSE > maxY) {
+                for (int blockX = blockX0; blockX <= blockX1; blockX++) {
+                    frame.touchBlock(blockX, blockY);
+                }
+                continue;
+            }
+            float rowAB = ab + aby * nearestCorner(aby, top);
+            float rowBC = bc + bcy * nearestCorner(bcy, top);
+            float rowCA = ca + cay * nearestCorner(cay, top);
+            for (int blockX = blockX0; blockX <= blockX1; blockX++) {
+                int left = blockX * FrameBuffer.COARSE;
+                if (left >= minX && left + FrameBuffer.COARSE <= maxX
+                        && rowAB + abx * nearestCorner(abx, left) > 0
+                        && rowBC + bcx * nearestCorner(bcx, left) > 0
+                        && rowCA + cax * nearestCorner(cax, left) > 0) {
+                    frame.coverBlock(blockX, blockY, farZ);
+                } else {
+                    frame.touchBlock(blockX, blockY);
+                }
+            }
+        }
+    }
+
+    /*
+     * the x (or y) of the side of the block from start, grown by the margin,
+     * nearest an edge whose function has coefficient e for x (or y).
+     */
+    private static float nearestCorner(float e, int start) {
+        return e > 0 ? start - COVER_MARGIN : start + FrameBuffer.COARSE + COVER_MARGIN;
+    }
+
+    /** Draws the polygon within the rectangle, without any culling. */
+    abstract void rasterize(FrameBuffer frame, float[] positions, int[] indices, int polygon, int colour,
+            int minX, int minY, int maxX, int maxY);
+
+    /** Returns the next engine, wrapping round to the first. */
+    public RasterEngine next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+
+    /** Reads an engine name such as "half_space", ignoring case, or returns EDGE_LIST. */
+    public static RasterEngine fromName(String name) {
+        for (RasterEngine engine : values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                return engine;
+            }
+        }
+        return EDGE_LIST;
+    }
+}
+
+// code for comp261 assignments
@@ -0,0 +1,29 @@
+package renderer;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Holds the ForkJoinPool that the renderer's parallel stages run on. Its size
+ * defaults to the number of processors and can be set with
+ * -Drenderer.threads=N or with setThreads().
+ */
+public class RenderThreads {
+	private static ForkJoinPool pool = new ForkJoinPool(
+			Math.max(1, Integer.getInteger("renderer.threads", Runtime.getRuntime().availableProcessors())));
+
+	public static synchronized ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/** Replaces the pool with one of the given size. */
+	public static synchronized void setThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("need at least one thread: " + threads);
+		if (threads != pool.getParallelism()) {
+			pool.shutdown();
+			pool = new ForkJoinPool(threads);
+		}
+	}
+}
+
+// code for comp261 assignments
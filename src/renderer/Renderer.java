@@ -1,54 +1,185 @@
 package renderer;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
+import java.awt.image.DataBufferInt;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 
+import javax.swing.Timer;
+
 public class Renderer extends GUI {
+    /** Keep models as 16-bit quantized positions; turn on with -Drenderer.compact=true */
+    static final boolean COMPACT_STORAGE = Boolean.getBoolean("renderer.compact");
+
+    /** The window's canvas size; set with -Drenderer.width=W and -Drenderer.height=H */
+    static final int DEFAULT_WIDTH = Integer.getInteger("renderer.width", CANVAS_WIDTH);
+    static final int DEFAULT_HEIGHT = Integer.getInteger("renderer.height", CANVAS_HEIGHT);
+
+    /** The loaded model, in object space. It is never changed after loading. */
     public Scene scene;
+    /** The camera orientation: every rotation so far, composed together. */
+    private Transform viewRotation = Transform.identity();
+    /**
+     * The screen space positions and normals of the scene, rewritten by
+     * every frame's viewScene() and only remade when a bigger scene is shown.
+     */
+    private float[] screenPositions = new float[0];
+    private float[] screenNormals = new float[0];
+    /**
+     * Draw into one reused FrameBuffer rather than fresh Color[][] arrays;
+     * turn off with -Drenderer.framebuffer=false
+     */
+    static final boolean USE_FRAME_BUFFER = !"false".equals(System.getProperty("renderer.framebuffer"));
+    /** Made on the first frame and reused after that. */
+    private FrameBuffer frameBuffer;
+    /**
+     * Draw the frame buffer a tile at a time on RenderThreads' pool. Starts
+     * on with -Drenderer.tiled=true, and T toggles it while running.
+     */
+    private boolean tiled = Boolean.getBoolean("renderer.tiled");
+    private final TileRasterizer tileRasterizer = new TileRasterizer();
+    /**
+     * How frame buffer triangles become pixels; set with
+     * -Drenderer.engine=half_space, and R cycles through the engines.
+     */
+    private RasterEngine engine = RasterEngine.fromName(System.getProperty("renderer.engine"));
+    /**
+     * Skip triangles and spans hidden behind what is already drawn; on with
+     * -Drenderer.hiz=true, and H toggles it. Turning it off prints how much
+     * the last frame culled.
+     */
+    private boolean occlusionCulling = Boolean.getBoolean("renderer.hiz");
+    /** The buffer the last culled frame was drawn into, and its polygon count. */
+    private FrameBuffer culledFrame;
+    private int culledPolygons;
+    /**
+     * Draw polygons nearest first; on with -Drenderer.sort=true, and O
+     * toggles it.
+     */
+    private boolean frontToBack = Boolean.getBoolean("renderer.sort");
+    private final DepthSorter depthSorter = new DepthSorter();
+    /**
+     * Light the vertices and blend their colours across each polygon instead
+     * of giving each polygon one colour; on with -Drenderer.gouraud=true, and
+     * G toggles it. It always draws with the serial edge list.
+     */
+    private boolean gouraud = Boolean.getBoolean("renderer.gouraud");
+    /** The light reaching each vertex, 3 floats per vertex. */
+    private float[] vertexLight = new float[0];
+    private final float[] cornerColours = new float[PackedScene.FLOATS_PER_POLYGON];
+    /**
+     * Draw polygon numbers into a visibility buffer and colour them in
+     * afterwards, so a change to the lighting alone needs no rasterizing;
+     * turn off with -Drenderer.visibility=false
+     */
+    static final boolean USE_VISIBILITY = !"false".equals(System.getProperty("renderer.visibility"));
+    /** Marks pixels of the visibility buffer that no polygon covers. */
+    private static final int NO_POLYGON = -1;
+    /** The polygon drawn at each pixel by the last geometry pass. */
+    private FrameBuffer visibility;
+    /** The screen space scene the visibility buffer was drawn from. */
+    private PackedScene visibleScene;
+    private int[] visiblePolygons = new int[0];
+    private int visibleCount;
+    private int[] shades = new int[0];
+    /** What the last geometry pass and colouring were done for. */
+    private List<Object> drawnGeometry;
+    private int[] drawnLighting;
+    /** The size of the image render() returns. */
+    private int canvasWidth = DEFAULT_WIDTH;
+    private int canvasHeight = DEFAULT_HEIGHT;
+    /** The size the current frame is drawn at, before any upsampling. */
+    private int renderWidth;
+    private int renderHeight;
+    /**
+     * While the view is rotating, draw at the scale resolution chooses and
+     * upsample; on with -Drenderer.dynamic=true, and V toggles it.
+     */
+    private boolean dynamicResolution = Boolean.getBoolean("renderer.dynamic");
+    /** The frame time to aim for; set with -Drenderer.frameMillis=N */
+    static final long FRAME_BUDGET_NANOS = Integer.getInteger("renderer.frameMillis", 16) * 1000000L;
+    /** How long after the last rotation the view is drawn at full size again. */
+    private static final int SETTLE_MILLIS = 300;
+    private final DynamicResolution resolution;
+    /** Whether there is a window, and so a settle timer. */
+    private final boolean windowed;
+    private Timer settleTimer;
+    /** The canvas size image a reduced frame is upsampled into. */
+    private BufferedImage upsampled;
+
+    public Renderer() {
+        super(true);
+        resolution = new DynamicResolution(FRAME_BUDGET_NANOS);
+        windowed = true;
+    }
+
+    /**
+     * Makes a renderer with no window, e.g. to render offscreen or in tests,
+     * whose reduced frames follow the given resolution. Such a renderer
+     * never settles by itself: the view is drawn at full size again when
+     * resolution.settle() is called.
+     */
+    protected Renderer(DynamicResolution resolution) {
+        super(false);
+        this.resolution = resolution;
+        windowed = false;
+    }
+
+    @Override
+    protected Dimension getCanvasSize() {
+        return new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    /**
+     * Sets the size of the images render() returns, e.g. to render a large
+     * image offscreen. The window's canvas stays the size it was made.
+     */
+    public void setCanvasSize(int width, int height) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("canvas must be at least 1x1: " + width + "x" + height);
+        canvasWidth = width;
+        canvasHeight = height;
+    }
+
+    public int getCanvasWidth() {
+        return canvasWidth;
+    }
+
+    public int getCanvasHeight() {
+        return canvasHeight;
+    }
 
     @Override
     protected void onLoad(File file) {
-        List<Scene.Polygon> polygons = new ArrayList<>();
-        int numberOfPolygons = 0;
+        /*
+         * This method should parse the given file into a Scene object, which
+         * you store and use to render an image.
+         */
         try {
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String currentLine = reader.readLine();
-            numberOfPolygons = Integer.parseInt(currentLine);
-            Vector3D lightPos = null;
-            while (reader.ready()) {
-                currentLine = reader.readLine();
-                String[] splittedCurrentLine = currentLine.split(",");
-                Color polygonColor = null;
-                if (splittedCurrentLine.length == 3) {
-                    lightPos = new Vector3D(Float.parseFloat(splittedCurrentLine[0]), Float.parseFloat(splittedCurrentLine[1]), Float.parseFloat(splittedCurrentLine[2]));
-                } else {
-                    List<Vector3D> tempVectors = new ArrayList<>();
-                    // Gets Color Reflectivity Of Polygon
-                    polygonColor = new Color(Integer.parseInt(splittedCurrentLine[0]), Integer.parseInt(splittedCurrentLine[1]), Integer.parseInt(splittedCurrentLine[2]));
-                    // Gets the vectors of the polygon
-                    for (int i = 3; i < splittedCurrentLine.length; i = i+3) {
-                        tempVectors.add(new Vector3D(Float.parseFloat(splittedCurrentLine[i]), Float.parseFloat(splittedCurrentLine[i + 1]), Float.parseFloat(splittedCurrentLine[i + 2])));
-                    }
-                    // Creates a new polygon and adds it to the fiel
-                    polygons.add(new Scene.Polygon(tempVectors.get(0), tempVectors.get(1), tempVectors.get(2), polygonColor));
-                }
+            PackedScene packed = SceneCache.getDefault().load(file);
+            if (COMPACT_STORAGE) {
+                packed = packed.compact();
             }
-            scene = new Scene(polygons, lightPos);
+            System.out.println("Loaded " + file.getName() + ": " + packed);
+            show(packed);
         } catch (IOException e) {
             System.out.println(e);
         }
-        /*
-         * This method should parse the given file into a Scene object, which
-         * you store and use to render an image.
-         */
+    }
+
+    /** Sets the model to draw, and puts the view back to the start. */
+    public void show(PackedScene packed) {
+        // the normals are not worked out here: the first frame works out the
+        // face normals, and the vertex normals (which only Gouraud shading
+        // uses) wait for the first Gouraud frame. Both are kept on packed,
+        // and only rotated after that.
+        scene = new Scene(packed);
+        viewRotation = Transform.identity();
     }
 
     @Override
@@ -56,16 +187,77 @@ public class Renderer extends GUI {
         if(scene==null){
             return;
         }
+        Transform step;
         if(ev.getKeyCode() == KeyEvent.VK_UP || ev.getKeyCode() == KeyEvent.VK_W){
-            scene = Pipeline.rotateScene(scene,(float)Math.toRadians(-2),0);
+            step = Transform.newXRotation((float)Math.toRadians(-2));
         } else if(ev.getKeyCode() == KeyEvent.VK_DOWN || ev.getKeyCode() == KeyEvent.VK_S){
-            scene = Pipeline.rotateScene(scene,(float)Math.toRadians(2),0);
+            step = Transform.newXRotation((float)Math.toRadians(2));
         } else if(ev.getKeyCode() == KeyEvent.VK_LEFT || ev.getKeyCode() == KeyEvent.VK_A){
-            scene = Pipeline.rotateScene(scene,0,(float)Math.toRadians(2));
+            step = Transform.newYRotation((float)Math.toRadians(2));
         } else if(ev.getKeyCode() == KeyEvent.VK_RIGHT || ev.getKeyCode() == KeyEvent.VK_D){
-            scene = Pipeline.rotateScene(scene,0,(float)Math.toRadians(-2));
+            step = Transform.newYRotation((float)Math.toRadians(-2));
+        } else if(ev.getKeyCode() == KeyEvent.VK_T){
+            tiled = !tiled;
+            System.out.println(tiled ? "Tiled rendering on" : "Tiled rendering off");
+            return;
+        } else if(ev.getKeyCode() == KeyEvent.VK_R){
+            engine = engine.next();
+            System.out.println("Rasterizing with " + engine);
+            return;
+        } else if(ev.getKeyCode() == KeyEvent.VK_H){
+            occlusionCulling = !occlusionCulling;
+            System.out.println(occlusionCulling ? "Occlusion culling on" : "Occlusion culling off");
+            if (!occlusionCulling && culledFrame != null) {
+                System.out.println("The last frame culled " + culledFrame.getTrianglesCulled() + " of "
+                        + culledPolygons + " triangles, and " + culledFrame.getSpansCulled() + " spans ("
+                        + culledFrame.getSpanPixelsCulled() + " pixels in them)");
+                culledFrame = null;
+            }
+            return;
+        } else if(ev.getKeyCode() == KeyEvent.VK_O){
+            frontToBack = !frontToBack;
+            System.out.println(frontToBack ? "Front to back ordering on" : "Front to back ordering off");
+            return;
+        } else if(ev.getKeyCode() == KeyEvent.VK_V){
+            dynamicResolution = !dynamicResolution;
+            System.out.println(dynamicResolution ? "Dynamic resolution on" : "Dynamic resolution off");
+            return;
+        } else if(ev.getKeyCode() == KeyEvent.VK_G){
+            gouraud = !gouraud;
+            // the frame buffer no longer holds what the visibility buffer
+            // was last coloured into.
+            drawnGeometry = null;
+            System.out.println(gouraud ? "Gouraud shading on" : "Gouraud shading off");
+            return;
+        } else {
+            return;
+        }
+        // the model itself is left alone; only the camera moves.
+        viewRotation = step.compose(viewRotation).orthonormalized();
+        if (dynamicResolution) {
+            startRotating();
+        }
+    }
+
+    /**
+     * Marks the view as rotating until no rotation key has been pressed for
+     * SETTLE_MILLIS, when it is drawn again at full size.
+     */
+    private void startRotating() {
+        resolution.startRotating();
+        if (!windowed) {
+            return;
         }
+        if (settleTimer == null) {
+            settleTimer = new Timer(SETTLE_MILLIS, e -> {
+                resolution.settle();
+                redraw();
+            });
+            settleTimer.setRepeats(false);
+        }
+        settleTimer.restart();
     }
+
     /**
      * This method should put together the pieces of your renderer, as
      * described in the lecture. This will involve calling each of the
@@ -77,21 +269,46 @@ public class Renderer extends GUI {
         if (scene == null) {
             return null;
         }
-        scene = Pipeline.translateScene(scene);
-        scene = Pipeline.scaleScene(scene);
-        scene = Pipeline.translateScene(scene);
-        Color[][] renderedImg = new Color[CANVAS_WIDTH][CANVAS_HEIGHT];
-        float[][] zDepth = new float[CANVAS_WIDTH][CANVAS_HEIGHT];
-        for (int y = 0; y < CANVAS_HEIGHT; y++) {
-            for (int x = 0; x < CANVAS_WIDTH; x++) {
-                zDepth[y][x] = Float.MAX_VALUE;
-                renderedImg[y][x] = Color.gray;
+        boolean reduced = USE_FRAME_BUFFER && dynamicResolution && resolution.isRotating();
+        float scale = reduced ? resolution.getScale() : 1;
+        renderWidth = Math.max(1, Math.round(canvasWidth * scale));
+        renderHeight = Math.max(1, Math.round(canvasHeight * scale));
+        long start = System.nanoTime();
+        if (USE_FRAME_BUFFER && USE_VISIBILITY && !gouraud) {
+            renderWithVisibility();
+        } else if (USE_FRAME_BUFFER) {
+            // a visibility buffer only holds one colour per polygon, so it
+            // has to be drawn again after Gouraud shading.
+            drawnGeometry = null;
+            renderToFrameBuffer(viewScene(renderWidth, renderHeight));
+        } else {
+            return renderToArrays();
+        }
+        if (reduced) {
+            resolution.frameDrawn(System.nanoTime() - start);
+        }
+        return upsample(frameBuffer);
+    }
+
+    /** The original renderer, drawing into fresh Color[][] arrays. */
+    private BufferedImage renderToArrays() {
+        PackedScene packed = viewScene(canvasWidth, canvasHeight);
+        Color ambient = new Color(getAmbientLight()[0], getAmbientLight()[1], getAmbientLight()[2]);
+        shadeScene(packed, ambient);
+        Color[][] renderedImg = new Color[canvasWidth][canvasHeight];
+        float[][] zDepth = new float[canvasWidth][canvasHeight];
+        for (int x = 0; x < canvasWidth; x++) {
+            for (int y = 0; y < canvasHeight; y++) {
+                zDepth[x][y] = Float.MAX_VALUE;
+                renderedImg[x][y] = Color.gray;
             }
         }
-        for (Scene.Polygon p : scene.getPolygons()) {
-            if (!Pipeline.isHidden(p)) {
-                Color shadedColor = Pipeline.getShading(p, scene.getLight(), Color.WHITE, new Color(getAmbientLight()[0], getAmbientLight()[1], getAmbientLight()[2]));
-                EdgeList polgonEdgeList = Pipeline.computeEdgeList(p);
+        float[] positions = packed.getPositions();
+        int[] indices = packed.getIndices();
+        for (int p = 0; p < packed.getPolygonCount(); p++) {
+            if (!Pipeline.isHidden(packed, p)) {
+                Color shadedColor = new Color(shades[p]);
+                EdgeList polgonEdgeList = Pipeline.computeEdgeList(positions, indices, p, EdgeList.scratch());
                 Pipeline.computeZBuffer(renderedImg, zDepth, polgonEdgeList, shadedColor);
             }
         }
@@ -99,6 +316,197 @@ public class Renderer extends GUI {
         return convertBitmapToImage(renderedImg);
     }
 
+    /**
+     * Returns the scene rotated and fitted to a canvas of the given size,
+     * written into the reused screenPositions and screenNormals. So it is
+     * only good until the next call: the visibility buffer's scene has to be
+     * drawn again after any other frame.
+     */
+    private PackedScene viewScene(int width, int height) {
+        PackedScene packed = scene.getPacked();
+        if (screenPositions.length < packed.getVertexCount() * 3) {
+            screenPositions = new float[packed.getVertexCount() * 3];
+        }
+        if (screenNormals.length < packed.getPolygonCount() * 3) {
+            screenNormals = new float[packed.getPolygonCount() * 3];
+        }
+        return Pipeline.viewScene(packed, viewRotation, width, height, screenPositions, screenNormals);
+    }
+
+    /**
+     * Returns the frame's image if it is the canvas size, or else the frame
+     * scaled up (nearest pixel) into the reused upsampled image.
+     */
+    private BufferedImage upsample(FrameBuffer frame) {
+        if (frame.getWidth() == canvasWidth && frame.getHeight() == canvasHeight) {
+            return frame.getImage();
+        }
+        if (upsampled == null || upsampled.getWidth() != canvasWidth || upsampled.getHeight() != canvasHeight) {
+            upsampled = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+        }
+        frame.scaleTo(((DataBufferInt)upsampled.getRaster().getDataBuffer()).getData(), canvasWidth, canvasHeight);
+        return upsampled;
+    }
+
+    /** Whether a reused buffer needs to be (re)made at the render size. */
+    private boolean needsResize(FrameBuffer frame) {
+        return frame == null || frame.getWidth() != renderWidth || frame.getHeight() != renderHeight;
+    }
+
+    /**
+     * The same steps as renderToArrays(), drawing into the reused
+     * frameBuffer at the render size.
+     */
+    private void renderToFrameBuffer(PackedScene packed) {
+        if (needsResize(frameBuffer)) {
+            frameBuffer = new FrameBuffer(renderWidth, renderHeight);
+        }
+        frameBuffer.clear(Color.gray.getRGB());
+        frameBuffer.setOcclusionCulling(occlusionCulling && !gouraud);
+        Color ambient = new Color(getAmbientLight()[0], getAmbientLight()[1], getAmbientLight()[2]);
+        int[] order = null;
+        int count = packed.getPolygonCount();
+        if (frontToBack) {
+            count = depthSorter.sort(packed);
+            order = depthSorter.getOrder();
+        }
+        if (gouraud) {
+            drawGouraud(packed, order, count, ambient);
+            return;
+        }
+        shadeScene(packed, ambient);
+        if (tiled) {
+            tileRasterizer.draw(frameBuffer, packed, order, count, shades, engine, RenderThreads.getPool());
+        } else {
+            float[] positions = packed.getPositions();
+            int[] indices = packed.getIndices();
+            for (int k = 0; k < count; k++) {
+                int p = order == null ? k : order[k];
+                if (!Pipeline.isHidden(packed, p)) {
+                    engine.draw(frameBuffer, positions, indices, p, shades[p], 0, 0, renderWidth, renderHeight);
+                }
+            }
+        }
+        if (occlusionCulling) {
+            culledFrame = frameBuffer;
+            culledPolygons = packed.getPolygonCount();
+        }
+    }
+
+    /**
+     * Draws the polygons with Gouraud shading: the vertices are lit once, and
+     * each polygon's corner colours are stepped down its edges and across its
+     * spans along with z.
+     */
+    private void drawGouraud(PackedScene packed, int[] order, int count, Color ambient) {
+        if (vertexLight.length < packed.getVertexCount() * 3) {
+            vertexLight = new float[packed.getVertexCount() * 3];
+        }
+        Pipeline.lightVertices(packed, ambient.getRGB(), vertexLight);
+        float[] positions = packed.getPositions();
+        int[] indices = packed.getIndices();
+        for (int k = 0; k < count; k++) {
+            int p = order == null ? k : order[k];
+            if (!Pipeline.isHidden(packed, p)) {
+                Pipeline.cornerColours(packed, vertexLight, p, cornerColours);
+                EdgeList edges = Pipeline.computeEdgeList(positions, indices, p, cornerColours, EdgeList.scratch(),
+                        0, 0, renderWidth, renderHeight);
+                Pipeline.computeShadedZBuffer(frameBuffer, edges, 0, 0, renderWidth, renderHeight);
+            }
+        }
+    }
+
+    /**
+     * The same image as renderToFrameBuffer(), but only rasterizing when the
+     * geometry (the scene, view, or how it is drawn) has changed since the
+     * last frame. Otherwise the polygons in the visibility buffer are simply
+     * coloured in again, and if the lighting has not changed either the last
+     * image is left as it is.
+     */
+    private void renderWithVisibility() {
+        List<Object> geometry = Arrays.asList(scene, viewRotation, renderWidth, renderHeight, engine, tiled,
+                occlusionCulling, frontToBack);
+        if (!geometry.equals(drawnGeometry)) {
+            drawVisibility();
+            drawnGeometry = geometry;
+            drawnLighting = null;
+        }
+        // a Gouraud frame may have left the frame buffer another size.
+        if (needsResize(frameBuffer)) {
+            frameBuffer = new FrameBuffer(renderWidth, renderHeight);
+            drawnLighting = null;
+        }
+        int[] lighting = getAmbientLight();
+        if (!Arrays.equals(lighting, drawnLighting)) {
+            resolveVisibility(new Color(lighting[0], lighting[1], lighting[2]));
+            drawnLighting = lighting;
+        }
+    }
+
+    /** The geometry pass: draws the number of the polygon seen at each pixel. */
+    private void drawVisibility() {
+        if (needsResize(visibility)) {
+            visibility = FrameBuffer.withoutImage(renderWidth, renderHeight);
+        }
+        visibleScene = viewScene(renderWidth, renderHeight);
+        visibility.clear(NO_POLYGON);
+        visibility.setOcclusionCulling(occlusionCulling);
+        float[] positions = visibleScene.getPositions();
+        int[] indices = visibleScene.getIndices();
+        int[] order = null;
+        int count = visibleScene.getPolygonCount();
+        if (frontToBack) {
+            count = depthSorter.sort(visibleScene);
+            order = depthSorter.getOrder();
+        }
+        if (visiblePolygons.length < visibleScene.getPolygonCount()) {
+            visiblePolygons = new int[visibleScene.getPolygonCount()];
+        }
+        visibleCount = 0;
+        for (int k = 0; k < count; k++) {
+            int p = order == null ? k : order[k];
+            if (!Pipeline.isHidden(visibleScene, p)) {
+                visiblePolygons[visibleCount++] = p;
+            }
+        }
+        if (tiled) {
+            tileRasterizer.drawIds(visibility, visibleScene, visiblePolygons, visibleCount, engine,
+                    RenderThreads.getPool());
+        } else {
+            for (int k = 0; k < visibleCount; k++) {
+                int p = visiblePolygons[k];
+                engine.draw(visibility, positions, indices, p, p, 0, 0, renderWidth, renderHeight);
+            }
+        }
+        if (occlusionCulling) {
+            culledFrame = visibility;
+            culledPolygons = visibleScene.getPolygonCount();
+        }
+    }
+
+    /**
+     * The lighting stage: shades every polygon of the scene with all of its
+     * lights, in one batch, into shades. The hidden ones are shaded too, as it
+     * is cheaper than picking them out.
+     */
+    private void shadeScene(PackedScene packed, Color ambient) {
+        if (shades.length < packed.getPolygonCount()) {
+            shades = new int[packed.getPolygonCount()];
+        }
+        Pipeline.shadeAll(packed, 0, packed.getPolygonCount(), ambient.getRGB(), shades);
+    }
+
+    /** Shades the polygons once and colours the pixels of the visible ones. */
+    private void resolveVisibility(Color ambient) {
+        shadeScene(visibleScene, ambient);
+        int[] ids = visibility.getPixels();
+        int[] pixels = frameBuffer.getPixels();
+        int background = Color.gray.getRGB();
+        for (int i = 0; i < ids.length; i++) {
+            pixels[i] = ids[i] == NO_POLYGON ? background : shades[ids[i]];
+        }
+    }
+
     /**
      * Converts a 2D array of Colors to a BufferedImage. Assumes that bitmap is
      * indexed by column then row and has imageHeight rows and imageWidth
@@ -106,9 +514,9 @@ public class Renderer extends GUI {
      * that order.
      */
     private BufferedImage convertBitmapToImage(Color[][] bitmap) {
-        BufferedImage image = new BufferedImage(CANVAS_WIDTH, CANVAS_HEIGHT, BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x < CANVAS_WIDTH; x++) {
-            for (int y = 0; y < CANVAS_HEIGHT; y++) {
+        BufferedImage image = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < canvasWidth; x++) {
+            for (int y = 0; y < canvasHeight; y++) {
                 image.setRGB(x, y, bitmap[x][y].getRGB());
             }
         }
@@ -1,6 +1,7 @@
 package renderer;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,21 +13,87 @@ import java.util.List;
  * 
  * If you were to implement more fancy rendering, e.g. Phong shading, you'd want
  * to store more information in this class.
+ *
+ * The geometry itself lives in a PackedScene; a Scene built from one only
+ * creates Polygon objects when getPolygons() is first called.
  */
 public class Scene {
 	private List<Polygon> scenePolygons;
 	private Vector3D lightPos;
+	private Vector3D[] lights;
+	private Color[] lightColours;
+	private PackedScene packed;
+
 	public Scene(List<Polygon> polygons, Vector3D lightPos) {
 		scenePolygons = polygons;
 		this.lightPos = lightPos;
 	}
 
+	/**
+	 * A scene lit by several directional lights, with a colour for each (or
+	 * null for all white).
+	 */
+	public Scene(List<Polygon> polygons, Vector3D[] lights, Color[] lightColours) {
+		scenePolygons = polygons;
+		this.lights = lights;
+		this.lightColours = lightColours;
+		this.lightPos = lights.length == 0 ? null : lights[0];
+	}
+
+	public Scene(PackedScene packed) {
+		this.packed = packed;
+		this.lightPos = packed.getLightVector();
+	}
+
+	/** The first light, or null if there are none. */
 	public Vector3D getLight() {
           return lightPos;
 	}
 
+	/** Every light's direction. */
+	public Vector3D[] getLights() {
+		if (lights == null) {
+			if (packed != null) {
+				float[] directions = packed.getLights();
+				lights = new Vector3D[packed.getLightCount()];
+				for (int i = 0; i < lights.length; i++)
+					lights[i] = new Vector3D(directions[i * 3], directions[i * 3 + 1], directions[i * 3 + 2]);
+			} else {
+				Vector3D light = getLight();
+				lights = light == null ? new Vector3D[0] : new Vector3D[] { light };
+			}
+		}
+		return lights;
+	}
+
+	/** The colour of each of getLights(). */
+	public Color[] getLightColours() {
+		if (lightColours == null) {
+			lightColours = new Color[getLights().length];
+			for (int i = 0; i < lightColours.length; i++)
+				lightColours[i] = packed == null ? Color.WHITE : new Color(packed.getLightColours()[i]);
+		}
+		return lightColours;
+	}
+
 	public List<Polygon> getPolygons() {
-          return scenePolygons;
+		if (scenePolygons == null && packed != null) {
+			List<Polygon> polygons = new ArrayList<>(packed.getPolygonCount());
+			for (int i = 0; i < packed.getPolygonCount(); i++)
+				polygons.add(packed.getPolygon(i));
+			scenePolygons = polygons;
+		}
+		return scenePolygons;
+	}
+
+	/**
+	 * Returns the packed form of this scene, packing the polygon list the first
+	 * time it is asked for.
+	 */
+	public PackedScene getPacked() {
+		if (packed == null)
+			packed = PackedScene.fromPolygons(getPolygons(), getLights(), getLightColours());
+		return packed;
 	}
 
 	/**
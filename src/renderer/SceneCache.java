@@ -0,0 +1,192 @@
+package renderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+/**
+ * An on-disk cache of loaded scenes, so reopening an unchanged model is a
+ * single mapped read rather than a parse.
+ * <p>
+ * Entries are keyed by a hash of the source file's canonical path, size and
+ * modification time, so an edited file misses the cache. Each entry is a small
+ * header followed by the scene in the BinaryScene format:
+ *
+ * <pre>
+ * offset  size  contents
+ *      0     4  magic "RSCC"
+ *      4     4  entry version (2)
+ *      8     4  CRC32 of everything from offset 16 on: the bounds and data
+ *     12     4  length of the BinaryScene data
+ *     16    24  bounds, {minX, minY, minZ, maxX, maxY, maxZ}
+ *     40     .  BinaryScene data
+ * </pre>
+ *
+ * An entry whose checksum or length does not match is treated as corrupt,
+ * deleted, and the scene is loaded from its source again. The cache is kept
+ * under a size limit by deleting the least recently used entries; an entry's
+ * modification time is bumped every time it is read.
+ */
+public class SceneCache {
+	/** "RSCC" as a little-endian int. */
+	private static final int MAGIC = 'R' | ('S' << 8) | ('C' << 16) | ('C' << 24);
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 40;
+	/** Where the checksummed part of an entry starts: the bounds. */
+	private static final int CHECKED_START = 16;
+	private static final String SUFFIX = ".rscc";
+
+	/** Default location, overridable with -Drenderer.cache.dir=... */
+	public static final String DEFAULT_DIR = System.getProperty("renderer.cache.dir",
+			System.getProperty("user.home") + File.separator + ".comp261-scene-cache");
+	/** Default size limit in bytes, overridable with -Drenderer.cache.maxBytes=... */
+	public static final long DEFAULT_MAX_BYTES = Long.getLong("renderer.cache.maxBytes", 256L << 20);
+
+	private final File directory;
+	private final long maxBytes;
+
+	public SceneCache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/** Returns a cache in the default directory with the default size limit. */
+	public static SceneCache getDefault() {
+		return new SceneCache(new File(DEFAULT_DIR), DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Loads a scene, from the cache if there is a good entry for the file as it
+	 * is now, otherwise with SceneLoader, storing the result for next time.
+	 * Problems with the cache itself are reported but never stop the load.
+	 */
+	public PackedScene load(File source) throws IOException {
+		File entry = entryFor(source);
+		if (entry.isFile()) {
+			try {
+				PackedScene cached = read(entry);
+				entry.setLastModified(System.currentTimeMillis());
+				return cached;
+			} catch (IOException e) {
+				System.out.println("Discarding bad cache entry " + entry.getName() + ": " + e.getMessage());
+				entry.delete();
+			}
+		}
+		PackedScene scene = SceneLoader.load(source);
+		try {
+			store(entry, scene);
+			evict();
+		} catch (IOException e) {
+			System.out.println("Could not cache " + source.getName() + ": " + e);
+		}
+		return scene;
+	}
+
+	/** Returns the cache file used for the given source file. */
+	File entryFor(File source) throws IOException {
+		String key = source.getCanonicalPath() + '|' + source.length() + '|' + source.lastModified();
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder();
+			for (int i = 0; i < 16; i++)
+				name.append(String.format("%02x", digest[i]));
+			return new File(directory, name.append(SUFFIX).toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/** Reads and checks a cache entry. */
+	static PackedScene read(File entry) throws IOException {
+		MappedByteBuffer buf = SceneLoader.map(entry);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+			throw new IOException("not a cache entry");
+		int length = buf.getInt(12);
+		if (length != buf.limit() - HEADER_SIZE)
+			throw new IOException("truncated");
+		buf.position(CHECKED_START);
+		CRC32 crc = new CRC32();
+		crc.update(buf.slice());
+		buf.position(HEADER_SIZE);
+		ByteBuffer data = buf.slice();
+		buf.position(0);
+		if ((int) crc.getValue() != buf.getInt(8))
+			throw new IOException("checksum mismatch");
+		float[] bounds = new float[6];
+		for (int i = 0; i < 6; i++)
+			bounds[i] = buf.getFloat(16 + i * 4);
+		PackedScene scene = BinaryScene.read(data);
+		scene.setBounds(bounds);
+		return scene;
+	}
+
+	/**
+	 * Writes a cache entry, going through a temporary file so a half written
+	 * entry is never seen.
+	 */
+	static void store(File entry, PackedScene scene) throws IOException {
+		long length = BinaryScene.size(scene);
+		if (HEADER_SIZE + length > Integer.MAX_VALUE)
+			throw new IOException("scene too large to cache");
+		File dir = entry.getAbsoluteFile().getParentFile();
+		Files.createDirectories(dir.toPath());
+		File temp = File.createTempFile("entry", ".tmp", dir);
+		try {
+			try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+				MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + length);
+				out.order(ByteOrder.LITTLE_ENDIAN);
+				out.position(HEADER_SIZE);
+				ByteBuffer data = out.slice();
+				BinaryScene.write(scene, data);
+				out.position(CHECKED_START);
+				for (float bound : scene.getBounds())
+					out.putFloat(bound);
+				out.position(CHECKED_START);
+				CRC32 crc = new CRC32();
+				crc.update(out.slice());
+				out.position(0);
+				out.putInt(MAGIC).putInt(VERSION).putInt((int) crc.getValue()).putInt((int) length);
+				out.force();
+			}
+			Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/** Deletes least recently used entries until the cache fits its limit. */
+	void evict() {
+		File[] entries = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (entries == null)
+			return;
+		long total = 0;
+		for (File entry : entries)
+			total += entry.length();
+		if (total <= maxBytes)
+			return;
+		Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+		for (File entry : entries) {
+			if (total <= maxBytes)
+				break;
+			total -= entry.length();
+			entry.delete();
+		}
+	}
+}
+
+// code for comp261 assignments
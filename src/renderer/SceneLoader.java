@@ -0,0 +1,504 @@
+package renderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads scene files into a PackedScene. Files starting with the BinaryScene
+ * magic number are read as binary scenes; anything else is read as text.
+ * <p>
+ * The text format is a line holding the number of polygons (trusted only as
+ * far as the file is long enough to hold them), then one line per polygon of
+ * the form "r,g,b,ax,ay,az,bx,by,bz,cx,cy,cz" and any number of light lines,
+ * each "x,y,z" giving a white directional light or "x,y,z,r,g,b" giving one
+ * of that colour. The file is memory-mapped and the
+ * numbers are parsed straight out of the mapped bytes, so no Strings are made
+ * for each line or token.
+ * <p>
+ * Large files are split into chunks that start and end on line boundaries and
+ * are parsed on a ForkJoinPool. A first pass counts the polygons in each chunk
+ * so that each chunk can then write into its own slots of the packed arrays.
+ * The result is identical to parsing the file front to back: polygons and
+ * lights keep their file order.
+ * <p>
+ * Once parsed, corners with exactly the same position are merged into a
+ * single vertex (see PackedScene.fromTriangles).
+ */
+public class SceneLoader {
+
+	/** Number of comma separated fields on a polygon line. */
+	static final int POLYGON_FIELDS = 12;
+	/** Number of comma separated fields on a white light line. */
+	static final int LIGHT_FIELDS = 3;
+	/** Number of comma separated fields on a coloured light line. */
+	static final int COLOURED_LIGHT_FIELDS = 6;
+
+	/**
+	 * The fewest bytes a polygon line can take: one digit and one comma or
+	 * line end for each field.
+	 */
+	static final int MIN_POLYGON_LINE = POLYGON_FIELDS * 2;
+
+	/** Files at least this big are parsed in parallel by load(File). */
+	static final int PARALLEL_THRESHOLD = 1 << 20;
+	/** The smallest chunk worth handing to another thread. */
+	private static final int MIN_CHUNK_SIZE = 1 << 12;
+
+	/**
+	 * Loads the given scene file, which may be text or a BinaryScene file. Large
+	 * text files are parsed on the RenderThreads pool.
+	 */
+	public static PackedScene load(File file) throws IOException {
+		MappedByteBuffer buf = map(file);
+		if (BinaryScene.isBinary(buf))
+			return BinaryScene.read(buf);
+		if (buf.limit() < PARALLEL_THRESHOLD)
+			return parseText(buf);
+		return parseTextParallel(buf, RenderThreads.getPool());
+	}
+
+	/**
+	 * Loads the given scene file on the given pool, or on the calling thread if
+	 * the pool is null.
+	 */
+	public static PackedScene load(File file, ForkJoinPool pool) throws IOException {
+		MappedByteBuffer buf = map(file);
+		if (BinaryScene.isBinary(buf))
+			return BinaryScene.read(buf);
+		return pool == null ? parseText(buf) : parseTextParallel(buf, pool);
+	}
+
+	/** Memory-maps the whole of a file for reading. */
+	static MappedByteBuffer map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Scene file too large to map: " + file);
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/** Parses a whole text scene held in the given buffer. */
+	static PackedScene parseText(ByteBuffer buf) throws IOException {
+		Cursor in = new Cursor(buf, 0, buf.limit());
+		in.skipBlankLines();
+		int declared = in.parseInt();
+		in.nextLine();
+		// the polygon count is only a hint for the first capacity, so a wrong
+		// or hostile one cannot ask for more than the rest of the file holds.
+		int capacity = Math.max(0, Math.min(declared, (buf.limit() - in.position()) / MIN_POLYGON_LINE));
+		float[] vertices = new float[capacity * PackedScene.FLOATS_PER_POLYGON];
+		int[] reflectance = new int[capacity];
+		LightList lights = new LightList();
+		int count = 0;
+		while (in.skipBlankLines()) {
+			int fields = in.countFields();
+			if (isLight(fields)) {
+				lights.parse(in, fields);
+			} else {
+				if (count == reflectance.length) {
+					int grown = Math.max(16, count * 2);
+					vertices = Arrays.copyOf(vertices, grown * PackedScene.FLOATS_PER_POLYGON);
+					reflectance = Arrays.copyOf(reflectance, grown);
+				}
+				in.parsePolygon(fields, vertices, reflectance, count++);
+			}
+			in.nextLine();
+		}
+		return lights.light(PackedScene.fromTriangles(vertices, reflectance, count, null));
+	}
+
+	private static boolean isLight(int fields) {
+		return fields == LIGHT_FIELDS || fields == COLOURED_LIGHT_FIELDS;
+	}
+
+	/**
+	 * Parses a whole text scene held in the given buffer, splitting the work
+	 * into chunks run on the given pool.
+	 */
+	static PackedScene parseTextParallel(ByteBuffer buf, ForkJoinPool pool) throws IOException {
+		Cursor header = new Cursor(buf, 0, buf.limit());
+		header.skipBlankLines();
+		header.parseInt();
+		header.nextLine();
+		List<Chunk> chunks = split(buf, header.position(), buf.limit(), pool.getParallelism() * 4);
+
+		// first pass: count polygons and find lights in each chunk.
+		List<Callable<Void>> counts = new ArrayList<>();
+		for (Chunk chunk : chunks)
+			counts.add(() -> {
+				chunk.count(buf);
+				return null;
+			});
+		runAll(pool, counts);
+
+		int total = 0;
+		LightList lights = new LightList();
+		for (Chunk chunk : chunks) {
+			chunk.firstSlot = total;
+			total += chunk.polygons;
+			lights.addAll(chunk.lights);
+		}
+
+		// second pass: parse each chunk into its own slots.
+		float[] vertices = new float[total * PackedScene.FLOATS_PER_POLYGON];
+		int[] reflectance = new int[total];
+		List<Callable<Void>> parses = new ArrayList<>();
+		for (Chunk chunk : chunks)
+			parses.add(() -> {
+				chunk.parse(buf, vertices, reflectance);
+				return null;
+			});
+		runAll(pool, parses);
+		return lights.light(PackedScene.fromTriangles(vertices, reflectance, total, null));
+	}
+
+	/**
+	 * Splits [start, end) into roughly the given number of chunks, moving each
+	 * boundary forward to the start of a line.
+	 */
+	private static List<Chunk> split(ByteBuffer buf, int start, int end, int pieces) {
+		int size = Math.max(MIN_CHUNK_SIZE, (end - start) / Math.max(1, pieces));
+		List<Chunk> chunks = new ArrayList<>();
+		int chunkStart = start;
+		while (chunkStart < end) {
+			int chunkEnd = (int) Math.min((long) chunkStart + size, end);
+			while (chunkEnd < end && buf.get(chunkEnd - 1) != '\n')
+				chunkEnd++;
+			chunks.add(new Chunk(chunkStart, chunkEnd));
+			chunkStart = chunkEnd;
+		}
+		return chunks;
+	}
+
+	private static void runAll(ForkJoinPool pool, List<Callable<Void>> tasks) throws IOException {
+		try {
+			for (Future<Void> result : pool.invokeAll(tasks))
+				result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/** A run of whole lines of the file, parsed by one task. */
+	private static class Chunk {
+		final int start, end;
+		int polygons;
+		int firstSlot;
+		final LightList lights = new LightList();
+
+		Chunk(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/** Counts the polygon lines and keeps the light lines. */
+		void count(ByteBuffer buf) throws IOException {
+			Cursor in = new Cursor(buf, start, end);
+			while (in.skipBlankLines()) {
+				int fields = in.countFields();
+				if (isLight(fields)) {
+					lights.parse(in, fields);
+				} else {
+					polygons++;
+				}
+				in.nextLine();
+			}
+		}
+
+		/** Parses the polygon lines into slots from firstSlot onwards. */
+		void parse(ByteBuffer buf, float[] vertices, int[] reflectance) throws IOException {
+			Cursor in = new Cursor(buf, start, end);
+			int slot = firstSlot;
+			while (in.skipBlankLines()) {
+				int fields = in.countFields();
+				if (!isLight(fields))
+					in.parsePolygon(fields, vertices, reflectance, slot++);
+				in.nextLine();
+			}
+		}
+	}
+
+	/** The lights read so far, in file order. */
+	private static class LightList {
+		float[] directions = new float[0];
+		int[] colours = new int[0];
+		int count;
+
+		/** Parses a light line with the given number of fields. */
+		void parse(Cursor in, int fields) throws IOException {
+			grow(count + 1);
+			in.parseLight(fields, directions, colours, count++);
+		}
+
+		void addAll(LightList other) {
+			grow(count + other.count);
+			System.arraycopy(other.directions, 0, directions, count * 3, other.count * 3);
+			System.arraycopy(other.colours, 0, colours, count, other.count);
+			count += other.count;
+		}
+
+		private void grow(int needed) {
+			if (colours.length < needed) {
+				int size = Math.max(4, Math.max(needed, colours.length * 2));
+				directions = Arrays.copyOf(directions, size * 3);
+				colours = Arrays.copyOf(colours, size);
+			}
+		}
+
+		/** Returns the scene with these lights, or with none if there are none. */
+		PackedScene light(PackedScene scene) {
+			if (count == 0)
+				return scene;
+			return scene.withLights(Arrays.copyOf(directions, count * 3), Arrays.copyOf(colours, count));
+		}
+	}
+
+	/**
+	 * A read position within a region of a byte buffer, with the number
+	 * parsing routines used by the loader. Only absolute gets are used, so
+	 * several cursors can share one buffer.
+	 */
+	static class Cursor {
+		private static final double[] POWERS_OF_TEN = new double[23];
+		static {
+			POWERS_OF_TEN[0] = 1;
+			for (int i = 1; i < POWERS_OF_TEN.length; i++)
+				POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+
+		private final ByteBuffer buf;
+		private final int limit;
+		private int pos;
+
+		Cursor(ByteBuffer buf, int start, int limit) {
+			this.buf = buf;
+			this.pos = start;
+			this.limit = limit;
+		}
+
+		int position() {
+			return pos;
+		}
+
+		/**
+		 * Skips over any empty lines, returning false if the end of the region
+		 * was reached.
+		 */
+		boolean skipBlankLines() {
+			while (pos < limit) {
+				byte b = buf.get(pos);
+				if (b != '\n' && b != '\r' && b != ' ' && b != '\t')
+					return true;
+				pos++;
+			}
+			return false;
+		}
+
+		/** Moves to the start of the next line. */
+		void nextLine() {
+			while (pos < limit && buf.get(pos++) != '\n')
+				;
+		}
+
+		/** Counts the comma separated fields on the current line. */
+		int countFields() {
+			int fields = 1;
+			for (int i = pos; i < limit; i++) {
+				byte b = buf.get(i);
+				if (b == '\n')
+					break;
+				if (b == ',')
+					fields++;
+			}
+			return fields;
+		}
+
+		/**
+		 * Parses a light line into the given slot of the direction and colour
+		 * arrays. A light without a colour is white.
+		 */
+		void parseLight(int fields, float[] directions, int[] colours, int slot) throws IOException {
+			directions[slot * 3] = parseFloat();
+			expectComma();
+			directions[slot * 3 + 1] = parseFloat();
+			expectComma();
+			directions[slot * 3 + 2] = parseFloat();
+			colours[slot] = 0xFFFFFF;
+			if (fields == COLOURED_LIGHT_FIELDS) {
+				expectComma();
+				colours[slot] = parseColour();
+			}
+		}
+
+		/**
+		 * Parses a polygon line into the given slot of the vertex and
+		 * reflectance arrays.
+		 */
+		void parsePolygon(int fields, float[] vertices, int[] reflectance, int slot) throws IOException {
+			if (fields != POLYGON_FIELDS)
+				throw error("Expected " + POLYGON_FIELDS + " fields but found " + fields);
+			reflectance[slot] = parseColour();
+			int offset = slot * PackedScene.FLOATS_PER_POLYGON;
+			for (int i = 0; i < PackedScene.FLOATS_PER_POLYGON; i++) {
+				expectComma();
+				vertices[offset + i] = parseFloat();
+			}
+		}
+
+		/** Parses "r,g,b" with each from 0 to 255, packed as 0xRRGGBB. */
+		private int parseColour() throws IOException {
+			int r = parseInt();
+			expectComma();
+			int g = parseInt();
+			expectComma();
+			int b = parseInt();
+			if (r < 0 || r > 255 || g < 0 || g > 255 || b < 0 || b > 255)
+				throw error("Colour out of range");
+			return (r << 16) | (g << 8) | b;
+		}
+
+		private void expectComma() throws IOException {
+			skipSpaces();
+			if (pos >= limit || buf.get(pos) != ',')
+				throw error("Expected ','");
+			pos++;
+		}
+
+		private void skipSpaces() {
+			while (pos < limit && (buf.get(pos) == ' ' || buf.get(pos) == '\t'))
+				pos++;
+		}
+
+		int parseInt() throws IOException {
+			skipSpaces();
+			boolean negative = false;
+			if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+'))
+				negative = buf.get(pos++) == '-';
+			int start = pos;
+			long value = 0;
+			while (pos < limit) {
+				int digit = buf.get(pos) - '0';
+				if (digit < 0 || digit > 9)
+					break;
+				value = value * 10 + digit;
+				if (value > Integer.MAX_VALUE)
+					throw error("Integer too large");
+				pos++;
+			}
+			if (pos == start)
+				throw error("Expected an integer");
+			skipSpaces();
+			return (int) (negative ? -value : value);
+		}
+
+		/**
+		 * Parses a decimal float, giving exactly the same result as
+		 * Float.parseFloat. Numbers with up to 18 significant digits and a small
+		 * exponent are computed with one correctly rounded double operation;
+		 * anything else (or a double landing exactly half way between two
+		 * floats) falls back to Float.parseFloat.
+		 */
+		float parseFloat() throws IOException {
+			skipSpaces();
+			int start = pos;
+			boolean negative = false;
+			if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+'))
+				negative = buf.get(pos++) == '-';
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean seenDigit = false;
+			boolean seenPoint = false;
+			while (pos < limit) {
+				byte b = buf.get(pos);
+				if (b >= '0' && b <= '9') {
+					seenDigit = true;
+					if (digits < 18) {
+						mantissa = mantissa * 10 + (b - '0');
+						if (mantissa != 0)
+							digits++;
+						if (seenPoint)
+							exponent--;
+					} else if (!seenPoint) {
+						exponent++;
+					}
+				} else if (b == '.' && !seenPoint) {
+					seenPoint = true;
+				} else {
+					break;
+				}
+				pos++;
+			}
+			if (!seenDigit)
+				return slowFloat(start);
+			if (pos < limit && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+				pos++;
+				int sign = 1;
+				if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+'))
+					sign = buf.get(pos++) == '-' ? -1 : 1;
+				int exp = 0;
+				int expStart = pos;
+				while (pos < limit && buf.get(pos) >= '0' && buf.get(pos) <= '9') {
+					exp = Math.min(exp * 10 + (buf.get(pos) - '0'), 10000);
+					pos++;
+				}
+				if (pos == expStart)
+					return slowFloat(start);
+				exponent += sign * exp;
+			}
+			if (pos < limit && buf.get(pos) != ',' && !isLineEnd(buf.get(pos)))
+				return slowFloat(start);
+			if (mantissa >= (1L << 53) || exponent < -22 || exponent > 22 || digits >= 18)
+				return slowFloat(start);
+			double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			// the low 29 bits of a double's mantissa are what a float drops;
+			// exactly half of that means rounding twice could go the wrong way.
+			if ((Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L)
+				return slowFloat(start);
+			float result = (float) value;
+			return negative ? -result : result;
+		}
+
+		private static boolean isLineEnd(byte b) {
+			return b == '\n' || b == '\r' || b == ' ' || b == '\t';
+		}
+
+		/** Re-parses the number starting at start with Float.parseFloat. */
+		private float slowFloat(int start) throws IOException {
+			pos = start;
+			while (pos < limit && buf.get(pos) != ',' && buf.get(pos) != '\n' && buf.get(pos) != '\r')
+				pos++;
+			byte[] bytes = new byte[pos - start];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = buf.get(start + i);
+			try {
+				return Float.parseFloat(new String(bytes, StandardCharsets.US_ASCII).trim());
+			} catch (NumberFormatException e) {
+				throw error("Bad number '" + new String(bytes, StandardCharsets.US_ASCII) + "'");
+			}
+		}
+
+		private IOException error(String message) {
+			return new IOException(message + " at byte " + pos);
+		}
+	}
+}
+
+// code for comp261 assignments
@@ -0,0 +1,203 @@
+package renderer;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Draws a screen space scene by splitting the frame into TILE_SIZE square
+ * tiles and drawing the tiles in parallel.
+ * <p>
+ * First each visible polygon is shaded and put in the bin of every tile its
+ * bounding box touches. Then the tiles are drawn on a ForkJoinPool, each one
+ * going through its bin in drawing order and only writing its own pixels.
+ * No two tiles share a pixel, so nothing needs locking, and every pixel sees
+ * the same polygons in the same order as the serial loop, so the image is
+ * identical.
+ * <p>
+ * The bins and colours are kept between frames and only grown.
+ */
+public class TileRasterizer {
+    public static final int TILE_SIZE = 32;
+
+    private int[] colours = new int[0];
+    /** tiles touched by each visible polygon, as {minX, minY, maxX, maxY} inclusive. */
+    private int[] tileBounds = new int[0];
+    private int[] binStarts = new int[0];
+    private int[] binFill = new int[0];
+    /** the polygon numbers in each bin, bin after bin. */
+    private int[] bins = new int[0];
+
+    /**
+     * Draws every visible polygon of a scene that has already been
+     * transformed to screen space into the frame.
+     */
+    public void draw(FrameBuffer frame, PackedScene scene, Vector3D light, Color lightColor, Color ambient,
+            ForkJoinPool pool) {
+        draw(frame, scene, light, lightColor, ambient, RasterEngine.EDGE_LIST, pool);
+    }
+
+    /** As draw(...), drawing each tile's polygons with the given engine. */
+    public void draw(FrameBuffer frame, PackedScene scene, Vector3D light, Color lightColor, Color ambient,
+            RasterEngine engine, ForkJoinPool pool) {
+        draw(frame, scene, null, scene.getPolygonCount(), light, lightColor, ambient, engine, pool);
+    }
+
+    /**
+     * As draw(...), but only drawing the first count polygons listed in
+     * order, in that order (e.g. from a DepthSorter), or every polygon in
+     * turn if order is null.
+     */
+    public void draw(FrameBuffer frame, PackedScene scene, int[] order, int count, Vector3D light, Color lightColor,
+            Color ambient, RasterEngine engine, ForkJoinPool pool) {
+        draw(frame, scene, order, count, light, lightColor.getRGB(), ambient.getRGB(), null, false, engine, pool);
+    }
+
+    /**
+     * As draw(frame, scene, order, count, ...), but with each polygon's colour
+     * already worked out, in shades[polygon] (e.g. by Pipeline.shadeAll).
+     */
+    public void draw(FrameBuffer frame, PackedScene scene, int[] order, int count, int[] shades,
+            RasterEngine engine, ForkJoinPool pool) {
+        draw(frame, scene, order, count, null, 0, 0, shades, false, engine, pool);
+    }
+
+    /**
+     * As draw(frame, scene, order, count, ...), but writing each polygon's
+     * number instead of its colour, to make a visibility buffer.
+     */
+    public void drawIds(FrameBuffer frame, PackedScene scene, int[] order, int count, RasterEngine engine,
+            ForkJoinPool pool) {
+        draw(frame, scene, order, count, null, 0, 0, null, true, engine, pool);
+    }
+
+    private void draw(FrameBuffer frame, PackedScene scene, int[] order, int count, Vector3D light, int lightColor,
+            int ambient, int[] shades, boolean ids, RasterEngine engine, ForkJoinPool pool) {
+        int tilesX = (frame.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (frame.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        int polygons = scene.getPolygonCount();
+        float[] positions = scene.getPositions();
+        int[] indices = scene.getIndices();
+        if (colours.length < polygons) {
+            colours = new int[polygons];
+            tileBounds = new int[polygons * 4];
+        }
+        if (binStarts.length < tilesX * tilesY + 1) {
+            binStarts = new int[tilesX * tilesY + 1];
+            binFill = new int[tilesX * tilesY];
+        } else {
+            Arrays.fill(binStarts, 0, tilesX * tilesY + 1, 0);
+        }
+
+        // shade the visible polygons and count how many go in each bin.
+        for (int k = 0; k < count; k++) {
+            int p = order == null ? k : order[k];
+            tileBounds[p * 4] = -1;
+            if (Pipeline.isHidden(scene, p) || !findTiles(frame, positions, indices, p)) {
+                continue;
+            }
+            if (ids) {
+                colours[p] = p;
+            } else {
+                colours[p] = shades != null ? shades[p] : Pipeline.shade(scene, p, light, lightColor, ambient);
+            }
+            for (int ty = tileBounds[p * 4 + 1]; ty <= tileBounds[p * 4 + 3]; ty++) {
+                for (int tx = tileBounds[p * 4]; tx <= tileBounds[p * 4 + 2]; tx++) {
+                    binStarts[ty * tilesX + tx + 1]++;
+                }
+            }
+        }
+        for (int tile = 0; tile < tilesX * tilesY; tile++) {
+            binStarts[tile + 1] += binStarts[tile];
+            binFill[tile] = binStarts[tile];
+        }
+        if (bins.length < binStarts[tilesX * tilesY]) {
+            bins = new int[binStarts[tilesX * tilesY]];
+        }
+        for (int k = 0; k < count; k++) {
+            int p = order == null ? k : order[k];
+            if (tileBounds[p * 4] < 0) {
+                continue;
+            }
+            for (int ty = tileBounds[p * 4 + 1]; ty <= tileBounds[p * 4 + 3]; ty++) {
+                for (int tx = tileBounds[p * 4]; tx <= tileBounds[p * 4 + 2]; tx++) {
+                    bins[binFill[ty * tilesX + tx]++] = p;
+                }
+            }
+        }
+
+        pool.invoke(new DrawTiles(frame, engine, positions, indices, tilesX, 0, tilesX * tilesY));
+    }
+
+    /**
+     * Works out which tiles the polygon's bounding box covers and stores them
+     * in tileBounds, returning false if it covers none. The box is padded by a
+     * pixel all round, so that neither rounding in the edge walk nor the pixel
+     * centre rule of the half-space engine can reach past it.
+     */
+    private boolean findTiles(FrameBuffer frame, float[] positions, int[] indices, int p) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            int v = indices[p * 3 + i] * 3;
+            minX = Math.min(minX, positions[v]);
+            maxX = Math.max(maxX, positions[v]);
+            minY = Math.min(minY, positions[v + 1]);
+            maxY = Math.max(maxY, positions[v + 1]);
+        }
+        int x0 = Math.max(0, (int)minX - 1);
+        int x1 = Math.min(frame.getWidth() - 1, (int)maxX + 1);
+        int y0 = Math.max(0, (int)minY - 1);
+        int y1 = Math.min(frame.getHeight() - 1, (int)maxY + 1);
+        if (x0 > x1 || y0 > y1 || Float.isNaN(minX + maxX + minY + maxY)) {
+            return false;
+        }
+        tileBounds[p * 4] = x0 / TILE_SIZE;
+        tileBounds[p * 4 + 1] = y0 / TILE_SIZE;
+        tileBounds[p * 4 + 2] = x1 / TILE_SIZE;
+        tileBounds[p * 4 + 3] = y1 / TILE_SIZE;
+        return true;
+    }
+
+    /* draws the tiles [start, end), splitting in half down to one tile. */
+    @SuppressWarnings("serial")
+    private class DrawTiles extends RecursiveAction {
+        private final FrameBuffer frame;
+        private final RasterEngine engine;
+        private final float[] positions;
+        private final int[] indices;
+        private final int tilesX, start, end;
+
+        DrawTiles(FrameBuffer frame, RasterEngine engine, float[] positions, int[] indices, int tilesX, int start,
+                int end) {
+            this.frame = frame;
+            this.engine = engine;
+            this.positions = positions;
+            this.indices = indices;
+            this.tilesX = tilesX;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new DrawTiles(frame, engine, positions, indices, tilesX, start, mid),
+                        new DrawTiles(frame, engine, positions, indices, tilesX, mid, end));
+                return;
+            }
+            int minX = (start % tilesX) * TILE_SIZE;
+            int minY = (start / tilesX) * TILE_SIZE;
+            int maxX = Math.min(minX + TILE_SIZE, frame.getWidth());
+            int maxY = Math.min(minY + TILE_SIZE, frame.getHeight());
+            for (int i = binStarts[start]; i < binStarts[start + 1]; i++) {
+                int p = bins[i];
+                engine.draw(frame, positions, indices, p, colours[p], minX, minY, maxX, maxY);
+            }
+        }
+    }
+}
+
+// code for comp261 assignments
@@ -1,4 +1,8 @@
 package renderer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * 3x4 array representing an affine transformation (= a 4x4 martrix in which the
  * bottom row is always {0 0 0 1} ) Note that this cannot be used for
@@ -12,11 +16,16 @@ package renderer;
  */
 public class Transform {
 
+	/** transformAll only splits work across threads above this many points. */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+
 	private final float[][] values;
 
 	/** Construct a Transformation given 3x4 array of elements */
 	private Transform(float[][] v) {
-		if (v.length != 3 || v[0].length != 4)
+		if (v == null || v.length != 3 || v[0] == null || v[0].length != 4
+				|| v[1] == null || v[1].length != 4 || v[2] == null
+				|| v[2].length != 4)
 			throw new IllegalArgumentException(
 					"Transform: Wrong size array for argument: " + v);
 		else
@@ -89,12 +98,35 @@ public class Transform {
 		return new Transform(ans);
 	}
 
+	/*
+	 * return a copy of this transform whose 3x3 part has been made
+	 * orthonormal again (Gram-Schmidt on the rows), so that rounding error does
+	 * not build up when many rotations are composed. The translation is kept.
+	 */
+	public Transform orthonormalized() {
+		float[][] ans = new float[3][4];
+		for (int row = 0; row < 3; row++) {
+			double x = values[row][0], y = values[row][1], z = values[row][2];
+			for (int prev = 0; prev < row; prev++) {
+				double dot = x * ans[prev][0] + y * ans[prev][1] + z * ans[prev][2];
+				x -= dot * ans[prev][0];
+				y -= dot * ans[prev][1];
+				z -= dot * ans[prev][2];
+			}
+			double len = Math.sqrt(x * x + y * y + z * z);
+			if (len == 0)
+				return this;
+			ans[row][0] = (float) (x / len);
+			ans[row][1] = (float) (y / len);
+			ans[row][2] = (float) (z / len);
+			ans[row][3] = values[row][3];
+		}
+		return new Transform(ans);
+	}
+
 	/* apply this transform to a vector */
 	public Vector3D multiply(Vector3D vect) {
-		if (values == null || values[0] == null || values[1] == null
-				|| values[2] == null) {
-			throw new IllegalStateException("Ill-formed transform");
-		}
+		// the constructor has already checked the shape of values.
 		if (vect == null) {
 			throw new IllegalArgumentException("multiply by null vector");
 		}
@@ -110,6 +142,76 @@ public class Transform {
 		return new Vector3D(x, y, z);
 	}
 
+	/*
+	 * apply this transform to count xyz points packed one after another in
+	 * src, writing the results to dst (which may be the same array). Gives
+	 * exactly the same floats as multiply, but without making any objects.
+	 */
+	public void transformAll(float[] src, float[] dst, int count) {
+		transformAll(src, 0, dst, 0, count);
+	}
+
+	/*
+	 * as transformAll(src, dst, count), but reading from src starting at
+	 * srcOffset and writing to dst starting at dstOffset.
+	 */
+	public void transformAll(float[] src, int srcOffset, float[] dst,
+			int dstOffset, int count) {
+		// copy the matrix into locals so the loop only touches the arrays.
+		float m00 = values[0][0], m01 = values[0][1], m02 = values[0][2], m03 = values[0][3];
+		float m10 = values[1][0], m11 = values[1][1], m12 = values[1][2], m13 = values[1][3];
+		float m20 = values[2][0], m21 = values[2][1], m22 = values[2][2], m23 = values[2][3];
+		int end = srcOffset + count * 3;
+		for (int i = srcOffset, j = dstOffset; i < end; i += 3, j += 3) {
+			float x = src[i], y = src[i + 1], z = src[i + 2];
+			dst[j] = m03 + (m00 * x + m01 * y + m02 * z);
+			dst[j + 1] = m13 + (m10 * x + m11 * y + m12 * z);
+			dst[j + 2] = m23 + (m20 * x + m21 * y + m22 * z);
+		}
+	}
+
+	/*
+	 * as transformAll(src, dst, count), but splitting the points into ranges
+	 * that are transformed on the given pool. Each point is worked out by
+	 * exactly the same code as the sequential version, so the output is
+	 * identical. Below PARALLEL_THRESHOLD points it just runs sequentially.
+	 */
+	public void transformAll(float[] src, float[] dst, int count,
+			ForkJoinPool pool) {
+		if (pool == null || count < PARALLEL_THRESHOLD
+				|| pool.getParallelism() == 1)
+			transformAll(src, 0, dst, 0, count);
+		else
+			pool.invoke(new TransformRange(src, dst, 0, count,
+					Math.max(PARALLEL_THRESHOLD / 4, count / (pool.getParallelism() * 4))));
+	}
+
+	/* transforms the points [start, end), splitting in half until small. */
+	@SuppressWarnings("serial")
+	private class TransformRange extends RecursiveAction {
+		private final float[] src, dst;
+		private final int start, end, grain;
+
+		TransformRange(float[] src, float[] dst, int start, int end, int grain) {
+			this.src = src;
+			this.dst = dst;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= grain) {
+				transformAll(src, start * 3, dst, start * 3, end - start);
+			} else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new TransformRange(src, dst, start, mid, grain),
+						new TransformRange(src, dst, mid, end, grain));
+			}
+		}
+	}
+
 	public String toString() {
 		StringBuilder ans = new StringBuilder();
 		for (int row = 0; row < 3; row++) {
@@ -0,0 +1,81 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * Builds a buffer of unique vertex positions, handing out the same vertex
+ * number for positions that are exactly equal. It uses an open addressing hash
+ * table over plain int arrays, so nothing is boxed. 0.0 and -0.0 are treated
+ * as the same coordinate.
+ */
+class VertexIndexer {
+	private float[] positions;
+	private int size;
+	private int[] table;
+	private int mask;
+
+	/** @param expected roughly how many vertices will be added. */
+	VertexIndexer(int expected) {
+		positions = new float[Math.max(3, expected * 3)];
+		int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+		table = new int[capacity];
+		Arrays.fill(table, -1);
+		mask = capacity - 1;
+	}
+
+	/** Returns the vertex number for the given position, adding it if new. */
+	int add(float x, float y, float z) {
+		// adding 0 turns -0.0 into 0.0 so both hash and compare the same.
+		x += 0.0f;
+		y += 0.0f;
+		z += 0.0f;
+		int slot = hash(x, y, z) & mask;
+		while (true) {
+			int vertex = table[slot];
+			if (vertex < 0)
+				break;
+			int i = vertex * 3;
+			if (positions[i] == x && positions[i + 1] == y && positions[i + 2] == z)
+				return vertex;
+			slot = (slot + 1) & mask;
+		}
+		if (size * 3 == positions.length)
+			positions = Arrays.copyOf(positions, positions.length * 2);
+		positions[size * 3] = x;
+		positions[size * 3 + 1] = y;
+		positions[size * 3 + 2] = z;
+		table[slot] = size;
+		if (++size * 2 > table.length)
+			rehash();
+		return size - 1;
+	}
+
+	float[] positions() {
+		return positions;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		Arrays.fill(table, -1);
+		mask = table.length - 1;
+		for (int vertex = 0; vertex < size; vertex++) {
+			int slot = hash(positions[vertex * 3], positions[vertex * 3 + 1], positions[vertex * 3 + 2]) & mask;
+			while (table[slot] >= 0)
+				slot = (slot + 1) & mask;
+			table[slot] = vertex;
+		}
+	}
+
+	private static int hash(float x, float y, float z) {
+		int h = Float.floatToIntBits(x);
+		h = h * 0x9E3779B1 + Float.floatToIntBits(y);
+		h = h * 0x9E3779B1 + Float.floatToIntBits(z);
+		return h ^ (h >>> 16);
+	}
+}
+
+// code for comp261 assignments
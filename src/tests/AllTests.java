@@ -11,7 +11,10 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 
 @RunWith(Suite.class)
-@SuiteClasses({ EdgeListTests.class, ZBufferTests.class, PolygonHidingTests.class, ShadingTests.class, RotationTests.class })
+@SuiteClasses({ EdgeListTests.class, ZBufferTests.class, PolygonHidingTests.class, ShadingTests.class, RotationTests.class,
+		PackedSceneTests.class, SceneLoaderTests.class, SceneCacheTests.class,
+		TransformTests.class, TileRasterizerTests.class, HalfSpaceTests.class, FixedPointTests.class, ClippingTests.class, OcclusionCullingTests.class, DepthSorterTests.class,
+		DynamicResolutionTests.class, GouraudTests.class })
 public class AllTests {
 
 }
@@ -0,0 +1,131 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.Pipeline;
+import renderer.RasterEngine;
+
+public class ClippingTests {
+
+	private static final int WIDTH = 50, HEIGHT = 40;
+	private static final int[] TRIANGLE = { 0, 1, 2 };
+
+	/**
+	 * Draws an unclipped edge list the slow way, checking every pixel against
+	 * the frame, which is what clipping up front has to match.
+	 */
+	private static void referenceFill(FrameBuffer frame, EdgeList el, int colour) {
+		for (int y = el.getStartY(); y < el.getEndY(); y++) {
+			float slope = (el.getRightZ(y) - el.getLeftZ(y)) / (el.getRightX(y) - el.getLeftX(y));
+			int startX = (int) el.getLeftX(y);
+			// z is still worked out from startX, however far off the frame.
+			for (int x = Math.max(startX, 0); x <= Math.min((int) el.getRightX(y) - 1, WIDTH - 1); x++) {
+				float z = el.getLeftZ(y) + slope * (x - startX);
+				if (x >= 0 && y >= 0 && x < WIDTH && y < HEIGHT && z < frame.getDepth()[y * WIDTH + x]) {
+					frame.getPixels()[y * WIDTH + x] = colour;
+					frame.getDepth()[y * WIDTH + x] = z;
+				}
+			}
+		}
+	}
+
+	private static void checkClipped(float[] verts) {
+		checkClipped(verts, Pipeline.computeEdgeList(verts, TRIANGLE, 0));
+	}
+
+	/**
+	 * As checkClipped(verts), with the reference drawn from the given edge
+	 * list. Returns the number of pixels drawn.
+	 */
+	private static int checkClipped(float[] verts, EdgeList reference) {
+		FrameBuffer expected = new FrameBuffer(WIDTH, HEIGHT);
+		FrameBuffer actual = new FrameBuffer(WIDTH, HEIGHT);
+		expected.clear(0);
+		actual.clear(0);
+		referenceFill(expected, reference, 0xFF00FF);
+		RasterEngine.EDGE_LIST.draw(actual, verts, TRIANGLE, 0, 0xFF00FF, 0, 0, WIDTH, HEIGHT);
+		assertArrayEquals(expected.getPixels(), actual.getPixels());
+		assertArrayEquals(expected.getDepth(), actual.getDepth(), 0);
+		int drawn = 0;
+		for (int pixel : actual.getPixels())
+			if (pixel == 0xFF00FF)
+				drawn++;
+		return drawn;
+	}
+
+	@Test
+	/** A triangle hanging off the left edge, with both windings. */
+	public void testStraddlesLeft() {
+		checkClipped(new float[] { -30.5f, 5.2f, 3, 20.3f, 18.7f, 8, -12.1f, 33.9f, 1 });
+		checkClipped(new float[] { -30.5f, 5.2f, 3, -12.1f, 33.9f, 1, 20.3f, 18.7f, 8 });
+	}
+
+	@Test
+	/** A triangle hanging off the right edge, with both windings. */
+	public void testStraddlesRight() {
+		checkClipped(new float[] { 30.5f, 4.4f, 3, 91.3f, 12.7f, 8, 44.6f, 35.1f, 1 });
+		checkClipped(new float[] { 30.5f, 4.4f, 3, 44.6f, 35.1f, 1, 91.3f, 12.7f, 8 });
+	}
+
+	@Test
+	/** A triangle hanging off the top edge, with both windings. */
+	public void testStraddlesTop() {
+		checkClipped(new float[] { 10.2f, -40.6f, 3, 41.9f, 12.3f, 8, 3.3f, 20.8f, 1 });
+		checkClipped(new float[] { 10.2f, -40.6f, 3, 3.3f, 20.8f, 1, 41.9f, 12.3f, 8 });
+	}
+
+	@Test
+	/** A triangle hanging off the bottom edge, with both windings. */
+	public void testStraddlesBottom() {
+		checkClipped(new float[] { 8.8f, 25.1f, 3, 45.2f, 31.4f, 8, 22.7f, 77.5f, 1 });
+		checkClipped(new float[] { 8.8f, 25.1f, 3, 22.7f, 77.5f, 1, 45.2f, 31.4f, 8 });
+	}
+
+	@Test
+	/** A triangle bigger than the frame, over every edge at once. */
+	public void testCoversFrame() {
+		checkClipped(new float[] { -60.5f, -45.2f, 3, 150.3f, -20.7f, 8, 10.1f, 130.9f, 1 });
+	}
+
+	@Test
+	/**
+	 * A vertex millions of pixels off the frame should be clipped straight
+	 * away: its edge list keeps only the frame's rows, and the pixels drawn
+	 * match the reference. The reference's edge list is cut to the frame's
+	 * rows too, as millions of unclipped rows would not fit in memory, so
+	 * the rows are checked against the vertices instead.
+	 */
+	public void testFarOffFrame() {
+		float[][] far = { { -2000000, 10, 3, 30, 35, 8, 40, 5, 1 }, { 10, -3000000, 3, 20, 35, 8, 45, 20, 1 },
+				{ -5000000, -4000000, 3, 25, 38, 8, 48, 2, 1 } };
+		int[] firstRows = { 5, 0, 0 }, endRows = { 35, 35, 38 };
+		for (int i = 0; i < far.length; i++) {
+			EdgeList el = Pipeline.computeEdgeList(far[i], TRIANGLE, 0, new EdgeList(0, 0), 0, 0, WIDTH, HEIGHT);
+			assertEquals(firstRows[i], el.getStartY());
+			assertEquals(endRows[i], el.getEndY());
+			EdgeList reference = Pipeline.computeEdgeList(far[i], TRIANGLE, 0, new EdgeList(0, 0),
+					Integer.MIN_VALUE, 0, Integer.MAX_VALUE, HEIGHT);
+			assertTrue(checkClipped(far[i], reference) > 0);
+		}
+	}
+
+	@Test
+	/** Triangles wholly outside the frame should be rejected with no rows. */
+	public void testTriviallyRejected() {
+		float[][] outside = { { -30, 5, 1, -10, 20, 1, -25, 30, 1 }, { 60, 5, 1, 80, 20, 1, 65, 30, 1 },
+				{ 5, -30, 1, 20, -10, 1, 30, -25, 1 }, { 5, 45, 1, 20, 60, 1, 30, 70, 1 } };
+		for (float[] verts : outside) {
+			EdgeList el = Pipeline.computeEdgeList(verts, TRIANGLE, 0, new EdgeList(0, 0), 0, 0, WIDTH, HEIGHT);
+			assertTrue(el.getEndY() <= el.getStartY());
+			checkClipped(verts);
+		}
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,70 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import renderer.DepthSorter;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.Transform;
+
+public class DepthSorterTests {
+
+	private static PackedScene makeScene(int count) {
+		Random random = new Random(261);
+		float[] vertices = new float[count * 9];
+		for (int i = 0; i < vertices.length; i++)
+			// negative depths too, to check the float bit ordering.
+			vertices[i] = random.nextFloat() * 200 - 100;
+		return PackedScene.fromTriangles(vertices, new int[count], count, null);
+	}
+
+	private static float nearest(PackedScene scene, int p) {
+		float z = Float.MAX_VALUE;
+		for (int i = 0; i < 3; i++)
+			z = Math.min(z, scene.getPositions()[scene.getIndices()[p * 3 + i] * 3 + 2]);
+		return z;
+	}
+
+	/** Checks the order holds each visible polygon once, nearest first. */
+	private static void checkOrder(PackedScene scene, DepthSorter sorter, int count) {
+		boolean[] seen = new boolean[scene.getPolygonCount()];
+		for (int i = 0; i < count; i++) {
+			int p = sorter.getOrder()[i];
+			assertFalse(seen[p]);
+			seen[p] = true;
+			if (i > 0)
+				assertTrue(nearest(scene, sorter.getOrder()[i - 1]) <= nearest(scene, p));
+		}
+		for (int p = 0; p < scene.getPolygonCount(); p++)
+			assertEquals(!Pipeline.isHidden(scene.getPositions(), scene.getIndices(), p), seen[p]);
+	}
+
+	@Test
+	/**
+	 * The first frame needs the radix sort; a slightly rotated frame after it
+	 * should be finished by the insertion sort from the last order.
+	 */
+	public void testSortsAndReusesOrder() {
+		PackedScene scene = makeScene(2000);
+		DepthSorter sorter = new DepthSorter();
+
+		checkOrder(scene, sorter, sorter.sort(scene));
+		assertTrue(sorter.usedRadixSort());
+
+		PackedScene rotated = scene.transform(Transform.newYRotation(0.001f));
+		checkOrder(rotated, sorter, sorter.sort(rotated));
+		assertFalse(sorter.usedRadixSort());
+
+		PackedScene turned = scene.transform(Transform.newXRotation(2.5f));
+		checkOrder(turned, sorter, sorter.sort(turned));
+		assertTrue(sorter.usedRadixSort());
+	}
+}
+
+// code for COMP261 assignments
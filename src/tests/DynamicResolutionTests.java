@@ -0,0 +1,190 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.JPanel;
+
+import org.junit.Test;
+
+import renderer.DynamicResolution;
+import renderer.FrameBuffer;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.Renderer;
+import renderer.Transform;
+
+public class DynamicResolutionTests {
+
+	private static final long BUDGET = 16000000;
+
+	/** A renderer with no window, driven by key codes. */
+	private static class OffscreenRenderer extends Renderer {
+		OffscreenRenderer(DynamicResolution resolution) {
+			super(resolution);
+			show(PackedScene.fromTriangles(new float[] { 5, 15, 6, 20, -5, 4, -10, -5, 3, -8, 12, 1, 15, 10, -2, -5,
+					0, 8 }, new int[] { 0xC86432, 0x3264C8 }, 2, new float[] { 0, 0, -1 }));
+		}
+
+		void press(int... keyCodes) {
+			for (int keyCode : keyCodes)
+				onKeyPress(new KeyEvent(new JPanel(), KeyEvent.KEY_PRESSED, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED));
+		}
+
+		int[] draw() {
+			BufferedImage image = render();
+			return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		}
+	}
+
+	/** A full size frame of the view after the given keys, from a new renderer. */
+	private static int[] fullSize(int... keyCodes) {
+		OffscreenRenderer renderer = new OffscreenRenderer(new DynamicResolution(BUDGET));
+		renderer.press(keyCodes);
+		return renderer.draw();
+	}
+
+	@Test
+	public void testScaleToUpsamples() {
+		FrameBuffer frame = new FrameBuffer(2, 2);
+		int[] pixels = frame.getPixels();
+		for (int i = 0; i < 4; i++)
+			pixels[i] = i + 1;
+		int[] target = new int[4 * 4];
+		frame.scaleTo(target, 4, 4);
+		assertArrayEquals(new int[] { 1, 1, 2, 2, 1, 1, 2, 2, 3, 3, 4, 4, 3, 3, 4, 4 }, target);
+	}
+
+	@Test
+	public void testScaleToOddSize() {
+		FrameBuffer frame = new FrameBuffer(3, 1);
+		int[] pixels = frame.getPixels();
+		for (int i = 0; i < 3; i++)
+			pixels[i] = i + 1;
+		int[] target = new int[5 * 2];
+		frame.scaleTo(target, 5, 2);
+		assertArrayEquals(new int[] { 1, 1, 2, 2, 3, 1, 1, 2, 2, 3 }, target);
+	}
+
+	@Test
+	public void testViewSceneFollowsCanvasSize() {
+		float[] vertices = { -10, -5, 3, 20, -5, 4, 5, 15, 6 };
+		PackedScene scene = PackedScene.fromTriangles(vertices, new int[1], 1, new float[] { 0, 0, -1 });
+		Transform rotation = Transform.newYRotation(0.3f);
+		float[] full = Pipeline.viewScene(scene, rotation, 800, 800).getPositions();
+		float[] half = Pipeline.viewScene(scene, rotation, 400, 400).getPositions();
+		for (int i = 0; i < 9; i++)
+			assertEquals(full[i] / 2, half[i], 1e-3);
+
+		// a tall canvas is limited by its width like the square one, so the
+		// scene only moves down by an eighth of the extra height.
+		float[] tall = Pipeline.viewScene(scene, rotation, 400, 1600).getPositions();
+		for (int i = 0; i < 9; i++)
+			assertEquals(half[i] + (i % 3 == 1 ? 150 : 0), tall[i], 1e-3);
+
+		// a wide canvas is limited by its height, and the scene stays inside
+		// the middle 3/4 of it both ways.
+		float[] wide = Pipeline.viewScene(scene, rotation, 1600, 400).getPositions();
+		for (int i = 0; i < 9; i += 3) {
+			assertTrue(wide[i] >= 200 - 1e-3 && wide[i] <= 1400 + 1e-3);
+			assertTrue(wide[i + 1] >= 50 - 1e-3 && wide[i + 1] <= 350 + 1e-3);
+		}
+	}
+
+	@Test
+	/**
+	 * While rotating, the scale should move to the one that would have drawn
+	 * the last frame in the budget, in steps of STEP, and stay between
+	 * MIN_SCALE and 1.
+	 */
+	public void testScaleFollowsFrameTime() {
+		DynamicResolution resolution = new DynamicResolution(BUDGET);
+		resolution.startRotating();
+		assertEquals(1, resolution.getScale(), 0);
+		// four times the budget at full size: half the width and height.
+		resolution.frameDrawn(BUDGET * 4);
+		assertEquals(0.5f, resolution.getScale(), 0);
+		resolution.frameDrawn(BUDGET * 4);
+		assertEquals(0.25f, resolution.getScale(), 0);
+		resolution.frameDrawn(BUDGET * 100);
+		assertEquals(DynamicResolution.MIN_SCALE, resolution.getScale(), 0);
+		resolution.frameDrawn(BUDGET / 4);
+		assertEquals(0.5f, resolution.getScale(), 0);
+		// sqrt(1 / 1.5) of 0.5 is 0.41, rounded to 3 steps.
+		resolution.frameDrawn(BUDGET * 3 / 2);
+		assertEquals(3 * DynamicResolution.STEP, resolution.getScale(), 0);
+		resolution.frameDrawn(1);
+		assertEquals(1, resolution.getScale(), 0);
+	}
+
+	@Test
+	/**
+	 * A settled view is drawn at full size, and frames drawn while settled
+	 * leave the rotating scale alone.
+	 */
+	public void testSettledScale() {
+		DynamicResolution resolution = new DynamicResolution(BUDGET);
+		resolution.startRotating();
+		resolution.frameDrawn(BUDGET * 100);
+		assertEquals(DynamicResolution.MIN_SCALE, resolution.getScale(), 0);
+		resolution.settle();
+		assertEquals(1, resolution.getScale(), 0);
+		resolution.frameDrawn(1);
+		resolution.startRotating();
+		assertEquals(DynamicResolution.MIN_SCALE, resolution.getScale(), 0);
+	}
+
+	@Test
+	/**
+	 * Rotating frames should be drawn reduced, and once the view settles
+	 * every buffer should be back at full size, giving exactly the frame a
+	 * new renderer draws.
+	 */
+	public void testSettledViewRedrawnAtFullSize() {
+		// any frame is over a 1ns budget, so the second is drawn at MIN_SCALE.
+		DynamicResolution resolution = new DynamicResolution(1);
+		OffscreenRenderer renderer = new OffscreenRenderer(resolution);
+		int[] full = fullSize(KeyEvent.VK_LEFT);
+		renderer.press(KeyEvent.VK_V, KeyEvent.VK_LEFT);
+		assertArrayEquals(full, renderer.draw());
+		assertEquals(DynamicResolution.MIN_SCALE, resolution.getScale(), 0);
+		int[] reduced = renderer.draw();
+		assertEquals(full.length, reduced.length);
+		assertTrue(!Arrays.equals(full, reduced));
+		resolution.settle();
+		assertArrayEquals(full, renderer.draw());
+	}
+
+	@Test
+	/**
+	 * Switching Gouraud shading off after it drew a reduced frame should draw
+	 * the flat frame at full size again, though the visibility buffer was
+	 * already full size from before.
+	 */
+	public void testGouraudOffAfterReducedFrame() {
+		DynamicResolution resolution = new DynamicResolution(1);
+		OffscreenRenderer renderer = new OffscreenRenderer(resolution);
+		int[] flat = renderer.draw();
+		renderer.press(KeyEvent.VK_V, KeyEvent.VK_G, KeyEvent.VK_LEFT);
+		renderer.draw();
+		renderer.draw();
+		resolution.settle();
+		renderer.press(KeyEvent.VK_G);
+		assertArrayEquals(fullSize(KeyEvent.VK_LEFT), renderer.draw());
+
+		// and switching it on and off again without moving redraws it flat.
+		renderer.press(KeyEvent.VK_RIGHT, KeyEvent.VK_G);
+		renderer.draw();
+		renderer.press(KeyEvent.VK_G);
+		resolution.settle();
+		assertArrayEquals(flat, renderer.draw());
+	}
+
+}
+
+// code for COMP261 assignments
@@ -113,6 +113,31 @@ public class EdgeListTests {
 		assertEquals(7.33333, el.getLeftZ(4), 1e-3);
 		assertEquals(8.33333, el.getRightZ(4), 1e-3);
 	}
+
+	@Test
+	/**
+	 * Refilling a reused EdgeList, first with a taller triangle and then a
+	 * shorter one, should give the same rows as a fresh list each time.
+	 */
+	public void testReusedEdgeList() {
+		float[] tall = new float[] { 0, 0, 0, 0, 40, 4, 30, 0, 8 };
+		float[] shortOne = new float[] { 2, 1, 5, 3, 6, 1, 9, 2, 2 };
+		int[] triangle = new int[] { 0, 1, 2 };
+		EdgeList reused = new EdgeList(0, 0);
+
+		for (float[] verts : new float[][] { tall, shortOne }) {
+			EdgeList fresh = Pipeline.computeEdgeList(verts, triangle, 0);
+			assertEquals(reused, Pipeline.computeEdgeList(verts, triangle, 0, reused));
+			assertEquals(fresh.getStartY(), reused.getStartY());
+			assertEquals(fresh.getEndY(), reused.getEndY());
+			for (int y = fresh.getStartY() - 1; y <= fresh.getEndY() + 1; y++) {
+				assertEquals(fresh.getLeftX(y), reused.getLeftX(y), 0);
+				assertEquals(fresh.getRightX(y), reused.getRightX(y), 0);
+				assertEquals(fresh.getLeftZ(y), reused.getLeftZ(y), 0);
+				assertEquals(fresh.getRightZ(y), reused.getRightZ(y), 0);
+			}
+		}
+	}
 }
 
 // code for COMP261 assignments
@@ -0,0 +1,87 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import renderer.FrameBuffer;
+import renderer.Pipeline;
+
+public class FixedPointTests {
+
+	@Test
+	/**
+	 * A jittered grid mesh, with vertices on subpixel positions that put many
+	 * pixel centres exactly on edges, should cover every pixel inside it
+	 * exactly once: no cracks along shared edges and no pixel drawn twice.
+	 */
+	public void testSharedEdgesCoveredOnce() {
+		Random random = new Random(261);
+		int cells = 8, spacing = 10, size = 100;
+		float[] positions = new float[(cells + 1) * (cells + 1) * 3];
+		for (int j = 0; j <= cells; j++) {
+			for (int i = 0; i <= cells; i++) {
+				int v = (j * (cells + 1) + i) * 3;
+				boolean border = i == 0 || j == 0 || i == cells || j == cells;
+				positions[v] = 5 + i * spacing + (border ? 0 : random.nextInt(64) / 16f - 2);
+				positions[v + 1] = 5 + j * spacing + (border ? 0 : random.nextInt(64) / 16f - 2);
+				positions[v + 2] = 1;
+			}
+		}
+		int[] indices = new int[cells * cells * 6];
+		int n = 0;
+		for (int j = 0; j < cells; j++) {
+			for (int i = 0; i < cells; i++) {
+				int a = j * (cells + 1) + i, b = a + 1, c = a + cells + 1, d = c + 1;
+				// alternate the diagonal, and the winding, from cell to cell.
+				if ((i + j) % 2 == 0) {
+					indices[n++] = a; indices[n++] = b; indices[n++] = d;
+					indices[n++] = a; indices[n++] = c; indices[n++] = d;
+				} else {
+					indices[n++] = a; indices[n++] = b; indices[n++] = c;
+					indices[n++] = b; indices[n++] = d; indices[n++] = c;
+				}
+			}
+		}
+
+		int[] coverage = new int[size * size];
+		FrameBuffer frame = new FrameBuffer(size, size);
+		for (int p = 0; p < cells * cells * 2; p++) {
+			frame.clear(0);
+			Pipeline.rasterizeFixedPoint(frame, positions, indices, p, 1);
+			for (int i = 0; i < coverage.length; i++)
+				coverage[i] += frame.getPixels()[i] & 1;
+		}
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				boolean inside = x >= 5 && x < 85 && y >= 5 && y < 85;
+				assertEquals("pixel " + x + "," + y, inside ? 1 : 0, coverage[y * size + x]);
+			}
+		}
+	}
+
+	@Test
+	/** Depth should be the plane of the triangle at each pixel centre. */
+	public void testPlaneDepth() {
+		// z = 3x - y + 100
+		float[] verts = { 2, 3, 103, 50, 10, 240, 20, 45, 115 };
+		FrameBuffer frame = new FrameBuffer(60, 60);
+		frame.clear(0);
+		Pipeline.rasterizeFixedPoint(frame, verts, new int[] { 0, 1, 2 }, 0, 1);
+		int drawn = 0;
+		for (int y = 0; y < 60; y++) {
+			for (int x = 0; x < 60; x++) {
+				if (frame.getPixels()[y * 60 + x] == 1) {
+					drawn++;
+					assertEquals(3 * (x + 0.5f) - (y + 0.5f) + 100, frame.getDepth()[y * 60 + x], 1e-2);
+				}
+			}
+		}
+		assertTrue(drawn > 500);
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,117 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.PackedScene;
+import renderer.Pipeline;
+
+public class GouraudTests {
+
+	/** A triangle facing the viewer, with corners at (2, 3), (14, 38) and (37, 8). */
+	private static final float[] POSITIONS = { 2, 3, 10, 14, 38, 5, 37, 8, 20 };
+	private static final int[] INDICES = { 0, 1, 2 };
+
+	private static FrameBuffer draw(float[] colours) {
+		FrameBuffer frame = new FrameBuffer(40, 40);
+		frame.clear(0);
+		EdgeList edges = Pipeline.computeEdgeList(POSITIONS, INDICES, 0, colours, EdgeList.scratch(), 0, 0, 40, 40);
+		Pipeline.computeShadedZBuffer(frame, edges, 0, 0, 40, 40);
+		return frame;
+	}
+
+	@Test
+	/**
+	 * A vertex shared by two triangles should get the average of their
+	 * normals, and one used by only one triangle should get its normal.
+	 */
+	public void testVertexNormals() {
+		// two triangles folded along the edge from (0, 0, 0) to (0, 10, 0).
+		float[] verts = { 0, 0, 0, 0, 10, 0, 10, 0, 0, 0, 10, 0, 0, 0, 0, -10, 0, -10 };
+		PackedScene scene = PackedScene.fromTriangles(verts, new int[2], 2, null);
+		float[] faces = scene.getNormals();
+		float[] vertices = scene.getVertexNormals();
+		assertEquals(4, scene.getVertexCount());
+
+		float[] sum = new float[3];
+		for (int i = 0; i < 3; i++)
+			sum[i] = faces[i] + faces[3 + i];
+		float length = (float) Math.sqrt(sum[0] * sum[0] + sum[1] * sum[1] + sum[2] * sum[2]);
+		for (int i = 0; i < 3; i++) {
+			// vertex 0 is shared, vertex 2 is only in the first triangle.
+			int shared = scene.getIndices()[0] * 3, single = scene.getIndices()[2] * 3;
+			assertEquals(sum[i] / length, vertices[shared + i], 1e-5);
+			assertEquals(faces[i], vertices[single + i], 1e-5);
+		}
+	}
+
+	@Test
+	/**
+	 * A triangle on its own has every vertex normal the same as its face, so
+	 * its corners should be the colour flat shading gives it.
+	 */
+	public void testCornersMatchFlatShading() {
+		float[] verts = { 0, 0, 5, 5, 10, 5, 10, 0, 5 };
+		PackedScene scene = PackedScene.fromTriangles(verts, new int[] { 0x6464FF }, 1, new float[] { -2.5f, -1, -1 })
+				.withLights(new float[] { -2.5f, -1, -1, 0, 0, -1 }, new int[] { 0xFFFFFF, 0x804020 });
+		int ambient = 0x0A0A0A;
+		int[] shades = new int[1];
+		Pipeline.shadeAll(scene, 0, 1, ambient, shades);
+		float[] light = new float[scene.getVertexCount() * 3];
+		Pipeline.lightVertices(scene, ambient, light);
+		float[] colours = new float[9];
+		Pipeline.cornerColours(scene, light, 0, colours);
+		for (int i = 0; i < 9; i++)
+			assertEquals((shades[0] >> (16 - i % 3 * 8)) & 0xFF, colours[i], 1.5);
+	}
+
+	@Test
+	/**
+	 * With the same colour at every corner, Gouraud shading should draw the
+	 * same pixels and depths as flat shading.
+	 */
+	public void testSameColourMatchesFlat() {
+		FrameBuffer flat = new FrameBuffer(40, 40);
+		flat.clear(0);
+		EdgeList edges = Pipeline.computeEdgeList(POSITIONS, INDICES, 0, EdgeList.scratch(), 0, 0, 40, 40);
+		Pipeline.computeZBuffer(flat, edges, 0xFF326496, 0, 0, 40, 40);
+
+		FrameBuffer gouraud = draw(new float[] { 50, 100, 150, 50, 100, 150, 50, 100, 150 });
+		assertArrayEquals(flat.getPixels(), gouraud.getPixels());
+		assertArrayEquals(flat.getDepth(), gouraud.getDepth(), 0);
+	}
+
+	@Test
+	/**
+	 * The colours should blend between the corners: every pixel stays within
+	 * the corners' range, and the pixels next to a corner are close to its
+	 * colour.
+	 */
+	public void testColoursInterpolated() {
+		FrameBuffer frame = draw(new float[] { 255, 0, 0, 0, 0, 255, 0, 255, 0 });
+		int drawn = 0;
+		for (int pixel : frame.getPixels()) {
+			if (pixel == 0)
+				continue;
+			drawn++;
+			int r = (pixel >> 16) & 0xFF, g = (pixel >> 8) & 0xFF, b = pixel & 0xFF;
+			// the channels are blended with weights that add up to one.
+			assertTrue(Math.abs(r + g + b - 255) <= 3);
+		}
+		assertTrue(drawn > 100);
+
+		int nearRed = frame.getPixels()[5 * 40 + 4];
+		int nearGreen = frame.getPixels()[9 * 40 + 32];
+		int nearBlue = frame.getPixels()[34 * 40 + 13];
+		assertTrue(((nearRed >> 16) & 0xFF) > 200);
+		assertTrue(((nearGreen >> 8) & 0xFF) > 200);
+		assertTrue((nearBlue & 0xFF) > 200);
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,70 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+
+import org.junit.Test;
+
+import renderer.FrameBuffer;
+import renderer.Pipeline;
+
+public class HalfSpaceTests {
+
+	private static final int[] TRIANGLE = { 0, 1, 2 };
+
+	@Test
+	/**
+	 * A pixel should be drawn exactly when its centre is inside the triangle,
+	 * whichever way round the triangle is wound, and given the depth of the
+	 * triangle's plane at that centre.
+	 */
+	public void testCoverageAndDepth() {
+		// z = x + 2y
+		float[][] triangles = { { 1, 1, 3, 37, 4, 45, 9, 30, 69 }, { 1, 1, 3, 9, 30, 69, 37, 4, 45 } };
+		for (float[] verts : triangles) {
+			FrameBuffer frame = new FrameBuffer(40, 40);
+			frame.clear(0);
+			Pipeline.rasterizeHalfSpace(frame, verts, TRIANGLE, 0, 0xFF0000);
+			for (int y = 0; y < 40; y++) {
+				for (int x = 0; x < 40; x++) {
+					float px = x + 0.5f, py = y + 0.5f;
+					boolean inside = side(verts, 0, 1, px, py) >= 0 && side(verts, 1, 2, px, py) >= 0
+							&& side(verts, 2, 0, px, py) >= 0;
+					boolean nearEdge = Math.abs(side(verts, 0, 1, px, py)) < 1e-2
+							|| Math.abs(side(verts, 1, 2, px, py)) < 1e-2 || Math.abs(side(verts, 2, 0, px, py)) < 1e-2;
+					if (nearEdge)
+						continue;
+					assertEquals(inside ? 0xFF0000 : 0, frame.getPixels()[y * 40 + x]);
+					if (inside)
+						assertEquals(px + 2 * py, frame.getDepth()[y * 40 + x], 1e-3);
+				}
+			}
+		}
+	}
+
+	@Test
+	/** Nearer triangles should win, and the frame should clip the drawing. */
+	public void testDepthAndClipping() {
+		FrameBuffer frame = new FrameBuffer(20, 20);
+		frame.clear(Color.gray.getRGB());
+		float[] far = { -30, -30, 50, 90, -30, 50, -30, 90, 50 };
+		float[] near = { -30, -30, 10, 90, -30, 10, -30, 90, 10 };
+		Pipeline.rasterizeHalfSpace(frame, near, TRIANGLE, 0, 0x00FF00);
+		Pipeline.rasterizeHalfSpace(frame, far, TRIANGLE, 0, 0xFF0000);
+		for (int i = 0; i < 400; i++) {
+			assertEquals(0x00FF00, frame.getPixels()[i] & 0xFFFFFF);
+			assertEquals(10, frame.getDepth()[i], 1e-4);
+		}
+	}
+
+	/** Twice the signed area of (a, b, p), positive on the inside of a wound triangle. */
+	private static float side(float[] verts, int a, int b, float px, float py) {
+		float area = (verts[3] - verts[0]) * (verts[7] - verts[1]) - (verts[6] - verts[0]) * (verts[4] - verts[1]);
+		float s = (verts[b * 3] - verts[a * 3]) * (py - verts[a * 3 + 1])
+				- (verts[b * 3 + 1] - verts[a * 3 + 1]) * (px - verts[a * 3]);
+		return area > 0 ? s : -s;
+	}
+}
+
+// code for COMP261 assignments
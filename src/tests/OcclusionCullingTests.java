@@ -0,0 +1,72 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import renderer.FrameBuffer;
+import renderer.RasterEngine;
+
+public class OcclusionCullingTests {
+
+	private static final int SIZE = 64;
+
+	/** A near wall over the whole frame, then a crowd of triangles behind it and in front of it. */
+	private static float[] makeScene(int count) {
+		Random random = new Random(261);
+		float[] verts = new float[(count + 2) * 9];
+		float[] wall = { -1, -1, 40, -1, 70, 40, 70, -1, 40, 70, -1, 40, -1, 70, 40, 70, 70, 40 };
+		System.arraycopy(wall, 0, verts, 0, wall.length);
+		for (int i = 18; i < verts.length; i += 3) {
+			verts[i] = random.nextFloat() * 80 - 8;
+			verts[i + 1] = random.nextFloat() * 80 - 8;
+			// mostly behind the wall, some in front.
+			verts[i + 2] = random.nextFloat() < 0.8f ? 50 + random.nextFloat() * 50 : random.nextFloat() * 39;
+		}
+		return verts;
+	}
+
+	private static FrameBuffer draw(RasterEngine engine, float[] verts, int triangles, boolean cull) {
+		int[] indices = new int[verts.length / 3];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = i;
+		FrameBuffer frame = new FrameBuffer(SIZE, SIZE);
+		frame.clear(0);
+		frame.setOcclusionCulling(cull);
+		for (int p = 0; p < triangles; p++)
+			engine.draw(frame, verts, indices, p, 0x10000 * p + 1, 0, 0, SIZE, SIZE);
+		return frame;
+	}
+
+	@Test
+	/**
+	 * Culling should skip triangles behind the wall without changing a single
+	 * pixel or depth, with every engine.
+	 */
+	public void testCullingChangesNothing() {
+		float[] verts = makeScene(300);
+		for (RasterEngine engine : RasterEngine.values()) {
+			FrameBuffer plain = draw(engine, verts, 302, false);
+			FrameBuffer culled = draw(engine, verts, 302, true);
+			assertArrayEquals(engine.toString(), plain.getPixels(), culled.getPixels());
+			assertArrayEquals(engine.toString(), plain.getDepth(), culled.getDepth(), 0);
+			assertTrue(engine.toString(), culled.getTrianglesCulled() > 150);
+			assertEquals(0, plain.getTrianglesCulled());
+		}
+	}
+
+	@Test
+	/** Nothing can be culled before the frame has been drawn on. */
+	public void testEmptyFrameCullsNothing() {
+		FrameBuffer frame = new FrameBuffer(SIZE, SIZE);
+		frame.clear(0);
+		frame.setOcclusionCulling(true);
+		assertTrue(!frame.isOccluded(1e30f, 0, 0, SIZE, SIZE));
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,129 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import renderer.EdgeList;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.Scene;
+import renderer.Scene.Polygon;
+import renderer.Transform;
+import renderer.Vector3D;
+
+public class PackedSceneTests {
+
+	private static Scene makeScene() {
+		List<Polygon> polys = new ArrayList<>();
+		polys.add(new Polygon(new float[] { 10, 5, 5, 2, 3, 2, 9, 5, 4 }, new int[] { 100, 100, 255 }));
+		polys.add(new Polygon(new float[] { 0, 0, 0, 0, 6, 11, 7, 0, 3 }, new int[] { 255, 0, 186 }));
+		return new Scene(polys, new Vector3D(-2.5f, -1, -1));
+	}
+
+	@Test
+	/** Packing a scene and reading it back should give the same polygons. */
+	public void testRoundTrip() {
+		Scene scene = makeScene();
+		Scene view = new Scene(scene.getPacked());
+
+		assertEquals(2, view.getPolygons().size());
+		for (int i = 0; i < 2; i++) {
+			Polygon expected = scene.getPolygons().get(i);
+			Polygon actual = view.getPolygons().get(i);
+			for (int v = 0; v < 3; v++)
+				assertEquals(expected.getVertices()[v], actual.getVertices()[v]);
+			assertEquals(expected.getReflectance(), actual.getReflectance());
+		}
+		assertEquals(scene.getLight(), view.getLight());
+	}
+
+	@Test
+	/**
+	 * Compact storage should stay within half a quantization step of the real
+	 * positions, and transforming it should use the dequantized positions.
+	 */
+	public void testCompactStorage() {
+		PackedScene packed = makeScene().getPacked();
+		PackedScene compact = packed.compact();
+		float[] bounds = packed.getBounds();
+
+		float[] original = packed.getPositions();
+		float[] dequantized = compact.getPositions();
+		for (int i = 0; i < original.length; i++) {
+			float extent = bounds[i % 3 + 3] - bounds[i % 3];
+			assertEquals(original[i], dequantized[i], extent / 65535 / 2 + 1e-5);
+		}
+		float[] transformed = compact.transform(Transform.identity()).getPositions();
+		for (int i = 0; i < dequantized.length; i++)
+			assertEquals(dequantized[i], transformed[i], 0);
+	}
+
+	@Test
+	/** The packed pipeline stages should agree with the Polygon ones. */
+	public void testPackedStagesMatch() {
+		Scene scene = makeScene();
+		PackedScene packed = scene.getPacked();
+		Color ambient = new Color(10, 20, 30);
+
+		for (int i = 0; i < 2; i++) {
+			Polygon poly = scene.getPolygons().get(i);
+			assertEquals(Pipeline.isHidden(poly), Pipeline.isHidden(packed.getPositions(), packed.getIndices(), i));
+			assertEquals(Pipeline.getShading(poly, scene.getLight(), Color.WHITE, ambient),
+					Pipeline.getShading(packed, i, scene.getLight(), Color.WHITE, ambient));
+
+			EdgeList expected = Pipeline.computeEdgeList(poly);
+			EdgeList actual = Pipeline.computeEdgeList(packed.getPositions(), packed.getIndices(), i);
+			assertEquals(expected.getStartY(), actual.getStartY());
+			assertEquals(expected.getEndY(), actual.getEndY());
+			for (int y = expected.getStartY(); y <= expected.getEndY(); y++) {
+				assertEquals(expected.getLeftX(y), actual.getLeftX(y), 1e-5);
+				assertEquals(expected.getRightX(y), actual.getRightX(y), 1e-5);
+				assertEquals(expected.getLeftZ(y), actual.getLeftZ(y), 1e-5);
+				assertEquals(expected.getRightZ(y), actual.getRightZ(y), 1e-5);
+			}
+		}
+	}
+
+	@Test
+	/** Rotated cached normals should match normals worked out after the move. */
+	public void testRotatedNormals() {
+		PackedScene packed = makeScene().getPacked();
+		Transform rotation = Transform.newXRotation(0.7f).compose(Transform.newYRotation(-1.2f));
+		Transform view = Transform.newTranslation(50, 80, 0).compose(Transform.newScale(3, 3, 3)).compose(rotation);
+		PackedScene moved = packed.transform(view, rotation);
+		for (int i = 0; i < 2; i++) {
+			Vector3D expected = Pipeline.calculateNormal(moved.getPositions(), moved.getIndices(), i);
+			assertEquals(expected.x, moved.getNormals()[i * 3], 1e-5);
+			assertEquals(expected.y, moved.getNormals()[i * 3 + 1], 1e-5);
+			assertEquals(expected.z, moved.getNormals()[i * 3 + 2], 1e-5);
+			assertEquals(Pipeline.isHidden(moved.getPositions(), moved.getIndices(), i), Pipeline.isHidden(moved, i));
+		}
+	}
+
+	@Test
+	/** A view written into reused arrays should match a freshly made one. */
+	public void testViewIntoReusedArrays() {
+		PackedScene packed = makeScene().getPacked();
+		float[] positions = new float[packed.getVertexCount() * 3 + 6];
+		float[] normals = new float[packed.getPolygonCount() * 3 + 6];
+		for (float angle : new float[] { 0.3f, -1.1f }) {
+			Transform rotation = Transform.newYRotation(angle);
+			PackedScene fresh = Pipeline.viewScene(packed, rotation, 400, 300);
+			PackedScene reused = Pipeline.viewScene(packed, rotation, 400, 300, positions, normals);
+			assertSame(positions, reused.getPositions());
+			assertSame(normals, reused.getNormals());
+			for (int i = 0; i < packed.getVertexCount() * 3; i++)
+				assertEquals(fresh.getPositions()[i], positions[i], 0);
+			for (int i = 0; i < packed.getPolygonCount() * 3; i++)
+				assertEquals(fresh.getNormals()[i], normals[i], 0);
+		}
+	}
+}
+
+// code for COMP261 assignments
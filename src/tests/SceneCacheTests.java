@@ -0,0 +1,116 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import renderer.PackedScene;
+import renderer.SceneCache;
+
+public class SceneCacheTests {
+
+	private static File tempDir() throws IOException {
+		File dir = Files.createTempDirectory("scenecache").toFile();
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	private static File onlyEntry(File dir) {
+		File[] entries = dir.listFiles();
+		assertEquals(1, entries.length);
+		entries[0].deleteOnExit();
+		return entries[0];
+	}
+
+	private static void assertSame(PackedScene expected, PackedScene actual) {
+		assertEquals(expected.getPolygonCount(), actual.getPolygonCount());
+		assertTrue(Arrays.equals(expected.getPositions(), actual.getPositions()));
+		assertTrue(Arrays.equals(expected.getIndices(), actual.getIndices()));
+		assertTrue(Arrays.equals(expected.getReflectance(), actual.getReflectance()));
+		assertTrue(Arrays.equals(expected.getLight(), actual.getLight()));
+		assertTrue(Arrays.equals(expected.getBounds(), actual.getBounds()));
+	}
+
+	@Test
+	/** A second load of the same file should come from the cache unchanged. */
+	public void testHit() throws IOException {
+		File dir = tempDir();
+		SceneCache cache = new SceneCache(dir, 1 << 20);
+		File source = SceneLoaderTests.writeTemp(SceneLoaderTests.SMALL_SCENE);
+
+		PackedScene first = cache.load(source);
+		File entry = onlyEntry(dir);
+		PackedScene second = cache.load(source);
+
+		assertSame(first, second);
+		assertTrue(entry.isFile());
+	}
+
+	@Test
+	/** A damaged entry should be thrown away and the source loaded again. */
+	public void testCorruptEntry() throws IOException {
+		File dir = tempDir();
+		SceneCache cache = new SceneCache(dir, 1 << 20);
+		File source = SceneLoaderTests.writeTemp(SceneLoaderTests.SMALL_SCENE);
+		PackedScene first = cache.load(source);
+
+		File entry = onlyEntry(dir);
+		try (RandomAccessFile raf = new RandomAccessFile(entry, "rw")) {
+			raf.seek(raf.length() - 1);
+			int last = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(last ^ 0xFF);
+		}
+
+		assertSame(first, cache.load(source));
+		assertSame(first, cache.load(source));
+	}
+
+	@Test
+	/** Damaged bounds in the header should be caught by the checksum too. */
+	public void testCorruptBounds() throws IOException {
+		File dir = tempDir();
+		SceneCache cache = new SceneCache(dir, 1 << 20);
+		File source = SceneLoaderTests.writeTemp(SceneLoaderTests.SMALL_SCENE);
+		PackedScene first = cache.load(source);
+
+		File entry = onlyEntry(dir);
+		try (RandomAccessFile raf = new RandomAccessFile(entry, "rw")) {
+			// the high byte of maxX, at offset 16 + 3 * 4.
+			raf.seek(31);
+			int high = raf.read();
+			raf.seek(31);
+			raf.write(high ^ 0x01);
+		}
+
+		assertSame(first, cache.load(source));
+		assertSame(first, cache.load(source));
+	}
+
+	@Test
+	/** Old entries should be evicted once the cache is over its size limit. */
+	public void testEviction() throws IOException {
+		File dir = tempDir();
+		SceneCache cache = new SceneCache(dir, 200);
+		File first = SceneLoaderTests.writeTemp(SceneLoaderTests.SMALL_SCENE);
+		File second = SceneLoaderTests.writeTemp(SceneLoaderTests.SMALL_SCENE + "\n");
+
+		cache.load(first);
+		File firstEntry = onlyEntry(dir);
+		firstEntry.setLastModified(System.currentTimeMillis() - 60000);
+		cache.load(second);
+
+		assertFalse(firstEntry.exists());
+		onlyEntry(dir);
+	}
+}
+
+// code for COMP261 assignments
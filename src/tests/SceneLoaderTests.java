@@ -0,0 +1,164 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import renderer.BinaryScene;
+import renderer.PackedScene;
+import renderer.SceneLoader;
+
+public class SceneLoaderTests {
+
+	static final String SMALL_SCENE = "2\n"
+			+ "200,0,0,300.0,20.0,100.0,370.0,200.0,150.0,390.0,110.0,10.0\r\n"
+			+ "0.7,-0.5,-0.509905\n"
+			+ "0,200,0,-1.5e2,.25,-0,270,0.0,50.0,340.0,180.0,0.0\n";
+
+	static File writeTemp(String contents) throws IOException {
+		File file = File.createTempFile("scene", ".txt");
+		file.deleteOnExit();
+		try (FileWriter out = new FileWriter(file)) {
+			out.write(contents);
+		}
+		return file;
+	}
+
+	@Test
+	/**
+	 * The loader should read colours, vertices and the light wherever it is in
+	 * the file, coping with Windows line endings and unusual number forms.
+	 */
+	public void testParsesTextScene() throws IOException {
+		PackedScene scene = SceneLoader.load(writeTemp(SMALL_SCENE));
+
+		assertEquals(2, scene.getPolygonCount());
+		assertEquals(0xC80000, scene.getReflectance()[0]);
+		assertEquals(0x00C800, scene.getReflectance()[1]);
+		assertEquals(390.0f, scene.getPolygon(0).getVertices()[2].x, 0);
+		assertEquals(-150f, scene.getPolygon(1).getVertices()[0].x, 0);
+		assertEquals(0.25f, scene.getPolygon(1).getVertices()[0].y, 0);
+		assertEquals(0.7f, scene.getLight()[0], 0);
+		assertEquals(-0.509905f, scene.getLight()[2], 0);
+	}
+
+	@Test
+	/**
+	 * Parsing in parallel chunks should give exactly the same scene as parsing
+	 * front to back, with the light found part way through the file.
+	 */
+	public void testParallelMatchesSequential() throws IOException {
+		Random random = new Random(261);
+		int count = 5000;
+		StringBuilder text = new StringBuilder().append(count).append('\n');
+		for (int i = 0; i < count; i++) {
+			if (i == count / 3)
+				text.append("0.39056706,-0.13019001,-0.9113221\n");
+			text.append(random.nextInt(256)).append(',').append(random.nextInt(256)).append(',')
+					.append(random.nextInt(256));
+			for (int v = 0; v < 9; v++)
+				text.append(',').append((random.nextFloat() - 0.5f) * 1000);
+			text.append('\n');
+		}
+		File file = writeTemp(text.toString());
+
+		PackedScene sequential = SceneLoader.load(file, null);
+		PackedScene parallel = SceneLoader.load(file, new ForkJoinPool(4));
+
+		assertEquals(count, parallel.getPolygonCount());
+		assertTrue(Arrays.equals(sequential.getPositions(), parallel.getPositions()));
+		assertTrue(Arrays.equals(sequential.getIndices(), parallel.getIndices()));
+		assertTrue(Arrays.equals(sequential.getReflectance(), parallel.getReflectance()));
+		assertTrue(Arrays.equals(sequential.getLight(), parallel.getLight()));
+	}
+
+	@Test
+	/**
+	 * Converting to the binary format and loading it back should give the same
+	 * scene, with the format picked by the magic number.
+	 */
+	public void testBinaryRoundTrip() throws IOException {
+		PackedScene text = SceneLoader.load(writeTemp(SMALL_SCENE));
+		File binary = File.createTempFile("scene", ".scn");
+		binary.deleteOnExit();
+		BinaryScene.write(text, binary);
+
+		PackedScene loaded = SceneLoader.load(binary);
+		assertEquals(text.getPolygonCount(), loaded.getPolygonCount());
+		assertTrue(Arrays.equals(text.getPositions(), loaded.getPositions()));
+		assertTrue(Arrays.equals(text.getIndices(), loaded.getIndices()));
+		assertTrue(Arrays.equals(text.getReflectance(), loaded.getReflectance()));
+		assertTrue(Arrays.equals(text.getLight(), loaded.getLight()));
+	}
+
+	@Test
+	/** Corners with the same position should share a single vertex. */
+	public void testSharedVerticesMerged() throws IOException {
+		PackedScene scene = SceneLoader.load(writeTemp("2\n"
+				+ "1,2,3,0,0,0,10,0,0,0,10,0\n"
+				+ "4,5,6,10,0,0,10,10,-0.0,0,10,0\n"
+				+ "0,0,-1\n"));
+
+		assertEquals(4, scene.getVertexCount());
+		assertEquals(1.5f, scene.getDedupRatio(), 1e-6);
+		assertEquals(scene.getIndices()[1], scene.getIndices()[3]);
+		assertEquals(scene.getIndices()[2], scene.getIndices()[5]);
+	}
+
+	@Test
+	/**
+	 * A polygon count far bigger than the file (or negative) should only be
+	 * taken as a hint, not used to size the arrays.
+	 */
+	public void testUntrustedPolygonCount() throws IOException {
+		String polygons = SMALL_SCENE.substring(SMALL_SCENE.indexOf('\n') + 1);
+		for (String count : new String[] { "2000000000", "-5", "0" }) {
+			PackedScene scene = SceneLoader.load(writeTemp(count + "\n" + polygons), null);
+			assertEquals(2, scene.getPolygonCount());
+			assertEquals(0x00C800, scene.getReflectance()[1]);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	/** A polygon line with the wrong number of fields should be rejected. */
+	public void testRejectsShortPolygon() throws IOException {
+		SceneLoader.load(writeTemp("1\n1,2,3,4,5\n0,0,1\n"));
+	}
+
+	@Test
+	/**
+	 * Every light line should be kept in file order, white unless it gives a
+	 * colour, in text and parallel parsing and through the binary format.
+	 */
+	public void testSeveralLights() throws IOException {
+		File file = writeTemp(SMALL_SCENE + "0,0,-1,255,128,0\n" + "1,2,3\n");
+		PackedScene text = SceneLoader.load(file, null);
+
+		assertEquals(3, text.getLightCount());
+		assertTrue(Arrays.equals(new float[] { 0.7f, -0.5f, -0.509905f, 0, 0, -1, 1, 2, 3 }, text.getLights()));
+		assertTrue(Arrays.equals(new int[] { 0xFFFFFF, 0xFF8000, 0xFFFFFF }, text.getLightColours()));
+		assertEquals(0.7f, text.getLight()[0], 0);
+
+		PackedScene parallel = SceneLoader.load(file, new ForkJoinPool(4));
+		assertTrue(Arrays.equals(text.getLights(), parallel.getLights()));
+		assertTrue(Arrays.equals(text.getLightColours(), parallel.getLightColours()));
+
+		File binary = File.createTempFile("scene", ".scn");
+		binary.deleteOnExit();
+		BinaryScene.write(text, binary);
+		PackedScene loaded = SceneLoader.load(binary);
+		assertTrue(Arrays.equals(text.getLights(), loaded.getLights()));
+		assertTrue(Arrays.equals(text.getLightColours(), loaded.getLightColours()));
+		assertTrue(Arrays.equals(text.getPositions(), loaded.getPositions()));
+	}
+}
+
+// code for COMP261 assignments
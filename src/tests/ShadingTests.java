@@ -3,9 +3,11 @@ package tests;
 import static org.junit.Assert.*;
 
 import java.awt.Color;
+import java.util.Random;
 
 import org.junit.Test;
 
+import renderer.PackedScene;
 import renderer.Pipeline;
 import renderer.Scene.Polygon;
 import renderer.Vector3D;
@@ -89,6 +91,60 @@ public class ShadingTests {
 
 		assertEquals(expected, shading);
 	}
+
+	@Test
+	/**
+	 * The packed kernel, on its own and over a batch, should give exactly the
+	 * colours getShading gives.
+	 */
+	public void testPackedKernelMatches() {
+		Random random = new Random(261);
+		int count = 200;
+		float[] verts = new float[count * 9];
+		int[] reflectance = new int[count];
+		for (int i = 0; i < verts.length; i++)
+			verts[i] = random.nextFloat() * 20 - 10;
+		for (int p = 0; p < count; p++)
+			reflectance[p] = random.nextInt(0x1000000);
+		PackedScene scene = PackedScene.fromTriangles(verts, reflectance, count, null);
+		Vector3D light = new Vector3D(-2.5f, -1, -1);
+		Color lightCol = new Color(100, 255, 100);
+		Color ambient = new Color(30, 40, 50);
+
+		int[] shades = new int[count];
+		Pipeline.shadeAll(scene.getNormals(), scene.getReflectance(), 0, count, light, lightCol.getRGB(),
+				ambient.getRGB(), shades);
+		for (int p = 0; p < count; p++) {
+			Color expected = Pipeline.getShading(scene.getPolygon(p), light, lightCol, ambient);
+			assertEquals(expected.getRGB(), Pipeline.shade(scene, p, light, lightCol.getRGB(), ambient.getRGB()));
+			assertEquals(expected.getRGB(), shades[p]);
+		}
+	}
+
+	@Test
+	/**
+	 * Each light should add its own light to the ambient light, and one white
+	 * light should give the same colours as getShading.
+	 */
+	public void testSeveralLights() {
+		float[] verts = new float[] { 0, 0, 5, 5, 10, 5, 10, 0, 5 };
+		int[] reflectance = { 0x6464FF };
+		Color ambient = new Color(10, 10, 10);
+		PackedScene one = PackedScene.fromTriangles(verts, reflectance, 1, new float[] { -2.5f, -1, -1 });
+		int[] shades = new int[1];
+		Pipeline.shadeAll(one, 0, 1, ambient.getRGB(), shades);
+		assertEquals(Pipeline.getShading(one, 0, one.getLightVector(), Color.WHITE, ambient).getRGB(), shades[0]);
+
+		// a red light head on plus a green one from behind, which adds nothing.
+		PackedScene two = one.withLights(new float[] { 0, 0, -1, 0, 0, 1 }, new int[] { 0xFF0000, 0x00FF00 });
+		Pipeline.shadeAll(two, 0, 1, ambient.getRGB(), shades);
+		assertEquals(new Color(103, 3, 10).getRGB(), shades[0]);
+
+		// two head on lights add up, and are clamped to 255.
+		PackedScene both = one.withLights(new float[] { 0, 0, -1, 0, 0, -2 }, new int[] { 0x808080, 0x808080 });
+		Pipeline.shadeAll(both, 0, 1, ambient.getRGB(), shades);
+		assertEquals(new Color(104, 104, 255).getRGB(), shades[0]);
+	}
 }
 
 //code for COMP261 assignments
\ No newline at end of file
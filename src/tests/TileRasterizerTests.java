@@ -0,0 +1,69 @@
+package tests;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.Color;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import renderer.FrameBuffer;
+import renderer.PackedScene;
+import renderer.Pipeline;
+import renderer.RasterEngine;
+import renderer.TileRasterizer;
+import renderer.Vector3D;
+
+public class TileRasterizerTests {
+
+	@Test
+	/**
+	 * Drawing a pile of overlapping triangles, some hanging off the edges of
+	 * the frame, tile by tile on several threads should give exactly the
+	 * image and depths of the serial loop, with every engine.
+	 */
+	public void testMatchesSerial() {
+		Random random = new Random(261);
+		int count = 500;
+		float[] vertices = new float[count * 9];
+		int[] reflectance = new int[count];
+		for (int p = 0; p < count; p++) {
+			float cx = random.nextFloat() * 260 - 30, cy = random.nextFloat() * 220 - 30;
+			for (int v = 0; v < 3; v++) {
+				vertices[p * 9 + v * 3] = cx + random.nextFloat() * 80 - 40;
+				vertices[p * 9 + v * 3 + 1] = cy + random.nextFloat() * 80 - 40;
+				vertices[p * 9 + v * 3 + 2] = random.nextFloat() * 100;
+			}
+			reflectance[p] = random.nextInt(0x1000000);
+		}
+		PackedScene scene = PackedScene.fromTriangles(vertices, reflectance, count, new float[] { 0.2f, -0.5f, -1 });
+		Vector3D light = scene.getLightVector();
+		Color ambient = new Color(40, 40, 40);
+
+		for (RasterEngine engine : RasterEngine.values()) {
+			FrameBuffer serial = new FrameBuffer(200, 170);
+			serial.clear(Color.gray.getRGB());
+			for (int p = 0; p < count; p++) {
+				if (!Pipeline.isHidden(scene.getPositions(), scene.getIndices(), p)) {
+					int colour = Pipeline.getShading(scene, p, light, Color.WHITE, ambient).getRGB();
+					engine.draw(serial, scene.getPositions(), scene.getIndices(), p, colour, 0, 0, 200, 170);
+				}
+			}
+
+			FrameBuffer tiled = new FrameBuffer(200, 170);
+			tiled.clear(Color.gray.getRGB());
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				new TileRasterizer().draw(tiled, scene, light, Color.WHITE, ambient, engine, pool);
+			} finally {
+				pool.shutdown();
+			}
+
+			assertArrayEquals(engine.toString(), serial.getPixels(), tiled.getPixels());
+			assertArrayEquals(engine.toString(), serial.getDepth(), tiled.getDepth(), 0);
+		}
+	}
+}
+
+// code for COMP261 assignments
@@ -0,0 +1,70 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import renderer.Transform;
+import renderer.Vector3D;
+
+public class TransformTests {
+
+	@Test
+	/**
+	 * Transforming a packed array should give bit-for-bit the same results as
+	 * multiplying each point on its own.
+	 */
+	public void testTransformAllMatchesMultiply() {
+		Random random = new Random(261);
+		Transform transform = Transform.newTranslation(3, -7, 11).compose(Transform.newScale(2.5f, 2.5f, 2.5f))
+				.compose(Transform.newXRotation(0.3f)).compose(Transform.newYRotation(-1.1f));
+		int count = 1000;
+		float[] points = new float[count * 3];
+		for (int i = 0; i < points.length; i++)
+			points[i] = (random.nextFloat() - 0.5f) * 1000;
+
+		float[] result = new float[points.length];
+		transform.transformAll(points, result, count);
+
+		for (int i = 0; i < count; i++) {
+			Vector3D expected = transform.multiply(new Vector3D(points[i * 3], points[i * 3 + 1], points[i * 3 + 2]));
+			assertEquals(Float.floatToIntBits(expected.x), Float.floatToIntBits(result[i * 3]));
+			assertEquals(Float.floatToIntBits(expected.y), Float.floatToIntBits(result[i * 3 + 1]));
+			assertEquals(Float.floatToIntBits(expected.z), Float.floatToIntBits(result[i * 3 + 2]));
+		}
+
+		// and transforming in place should do the same.
+		transform.transformAll(points, points, count);
+		for (int i = 0; i < points.length; i++)
+			assertEquals(Float.floatToIntBits(result[i]), Float.floatToIntBits(points[i]));
+	}
+
+	@Test
+	/** Splitting the work across threads should not change a single bit. */
+	public void testParallelMatchesSequential() {
+		Random random = new Random(262);
+		Transform transform = Transform.newXRotation(0.7f).compose(Transform.newYRotation(2.3f))
+				.compose(Transform.newScale(0.3f, 0.3f, 0.3f));
+		int count = Transform.PARALLEL_THRESHOLD * 3 + 17;
+		float[] points = new float[count * 3];
+		for (int i = 0; i < points.length; i++)
+			points[i] = (random.nextFloat() - 0.5f) * 1000;
+
+		float[] sequential = new float[points.length];
+		float[] parallel = new float[points.length];
+		transform.transformAll(points, sequential, count);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			transform.transformAll(points, parallel, count, pool);
+		} finally {
+			pool.shutdown();
+		}
+		for (int i = 0; i < points.length; i++)
+			assertEquals(Float.floatToIntBits(sequential[i]), Float.floatToIntBits(parallel[i]));
+	}
+}
+
+// code for COMP261 assignments
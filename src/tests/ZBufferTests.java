@@ -7,6 +7,8 @@ import java.awt.Color;
 import org.junit.Test;
 
 import renderer.EdgeList;
+import renderer.FrameBuffer;
+import renderer.GUI;
 import renderer.Pipeline;
 
 /**
@@ -193,6 +195,39 @@ public class ZBufferTests {
 		}
 
 	}
+
+	@Test
+	/**
+	 * Drawing overlapping triangles into a FrameBuffer should give the same
+	 * colours and depths as drawing them into Color and float arrays.
+	 */
+	public void testFrameBufferMatchesArrays() {
+		int size = 40;
+		Color[][] zbuffer = new Color[GUI.CANVAS_WIDTH][GUI.CANVAS_HEIGHT];
+		float[][] zdepth = new float[GUI.CANVAS_WIDTH][GUI.CANVAS_HEIGHT];
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++) {
+				zbuffer[x][y] = Color.gray;
+				zdepth[x][y] = Float.MAX_VALUE;
+			}
+		FrameBuffer frame = new FrameBuffer(size, size);
+		frame.clear(Color.gray.getRGB());
+
+		float[][] triangles = { { 1, 2, 10, 30, 5, 20, 12, 35, 5 }, { 0, 0, 8, 39, 10, 8, 5, 39, 8 } };
+		Color[] colours = { new Color(200, 10, 10), new Color(10, 200, 10) };
+		for (int t = 0; t < triangles.length; t++) {
+			EdgeList el = Pipeline.computeEdgeList(triangles[t], new int[] { 0, 1, 2 }, 0);
+			Pipeline.computeZBuffer(zbuffer, zdepth, el, colours[t]);
+			Pipeline.computeZBuffer(frame, el, colours[t].getRGB());
+		}
+
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				assertEquals(zbuffer[x][y].getRGB(), frame.getPixels()[y * size + x]);
+				assertEquals(zdepth[x][y], frame.getDepth()[y * size + x], 0);
+			}
+		}
+	}
 }
 
 //code for COMP261 assignments